@@ -4,8 +4,27 @@ import javalib.worldimages.*;
 import tester.*;
 
 import java.awt.*;
-//import java.awt.event.KeyEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.imageio.ImageIO;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.*;
 
 //represents a list of elements 
 interface IList<T> extends Iterable<T> {
@@ -36,6 +55,9 @@ interface IList<T> extends Iterable<T> {
   // gets the element at a certain point
   T getDataPoint();
 
+  // the first cell of a non-empty list
+  Cons<T> asCons();
+
 }
 
 //empty list of elements 
@@ -76,6 +98,10 @@ class Empty<T> implements IList<T>, Iterable<T> {
     return null;
   }
 
+  public Cons<T> asCons() {
+    throw new IllegalArgumentException("list is empty and has no cells");
+  }
+
 }
 
 //represents a list with elements 
@@ -89,7 +115,11 @@ class Cons<T> implements IList<T>, Iterable<T> {
   }
 
   public int listLength() {
-    return 1 + this.rest.listLength();
+    int length = 1;
+    for (IList<T> l = this.rest; !l.isEmpty(); l = l.getNext()) {
+      length++;
+    }
+    return length;
   }
 
   public boolean isEmpty() {
@@ -101,34 +131,34 @@ class Cons<T> implements IList<T>, Iterable<T> {
   }
 
   public IList<T> add(T element) {
-    if (rest.isEmpty()) {
-      rest = new Cons<T>(element, new Empty<T>());
-    }
-    else {
-      rest = rest.add(element);
-    }
+    lastCell().rest = new Cons<T>(element, new Empty<T>());
     return this;
   }
 
   public T getIndex(int index) {
-    if (index == 0) {
-      return this.first;
-    }
-    else {
-      return this.rest.getIndex(index = index - 1);
+    IList<T> l = this;
+    for (int i = 0; i < index && !l.isEmpty(); i++) {
+      l = l.getNext();
     }
+    return l.getDataPoint();
   }
 
   public IList<T> appendList(IList<T> element) {
-    if (rest.isEmpty()) {
-      rest = element;
-    }
-    else {
-      rest.appendList(element);
+    if (!element.isEmpty()) {
+      lastCell().rest = element.asCons();
     }
     return this;
   }
 
+  // walks to the last cell of the list
+  Cons<T> lastCell() {
+    Cons<T> cell = this;
+    while (!cell.rest.isEmpty()) {
+      cell = cell.rest.asCons();
+    }
+    return cell;
+  }
+
   public IList<T> getNext() {
     return this.rest;
   }
@@ -141,6 +171,92 @@ class Cons<T> implements IList<T>, Iterable<T> {
     return this.first;
   }
 
+  public Cons<T> asCons() {
+    return this;
+  }
+
+}
+
+//a list that keeps its length and its last cell, so adding to the end is O(1) - its cells
+//are ordinary Cons cells, and it catches up if something else extends them
+class TailList<T> implements IList<T>, Iterable<T> {
+  IList<T> cells;
+  Cons<T> last;
+  int length;
+
+  TailList() {
+    this.cells = new Empty<T>();
+    this.last = null;
+    this.length = 0;
+  }
+
+  public int listLength() {
+    catchUp();
+    return this.length;
+  }
+
+  public boolean isEmpty() {
+    return this.cells.isEmpty();
+  }
+
+  public Iterator<T> iterator() {
+    return new ListIterator<T>(this.cells);
+  }
+
+  public IList<T> add(T element) {
+    Cons<T> cell = new Cons<T>(element, new Empty<T>());
+    if (this.last == null) {
+      this.cells = cell;
+    }
+    else {
+      catchUp();
+      this.last.rest = cell;
+    }
+    this.last = cell;
+    this.length++;
+    return this;
+  }
+
+  public T getIndex(int index) {
+    return this.cells.getIndex(index);
+  }
+
+  // copies the elements of the other list onto the end of this one
+  public IList<T> appendList(IList<T> list) {
+    int n = list.listLength();
+    Iterator<T> elements = list.iterator();
+    for (int i = 0; i < n; i++) {
+      add(elements.next());
+    }
+    return this;
+  }
+
+  public IList<T> getNext() {
+    return this.cells.getNext();
+  }
+
+  public boolean hasNext() {
+    return !this.cells.isEmpty();
+  }
+
+  public T getDataPoint() {
+    return this.cells.getDataPoint();
+  }
+
+  public Cons<T> asCons() {
+    return this.cells.asCons();
+  }
+
+  // moves last up to the real end, in case its cells were added to from outside
+  void catchUp() {
+    if (this.last != null) {
+      while (!this.last.rest.isEmpty()) {
+        this.last = this.last.rest.asCons();
+        this.length++;
+      }
+    }
+  }
+
 }
 
 // the iterator for the list 
@@ -164,219 +280,241 @@ class ListIterator<T> implements Iterator<T> {
 
 //iterates through the dequeue 
 class DequeIterator<T> implements Iterator<T> {
-  ANode<T> currentNode;
+  Deque<T> deque;
+  int index;
 
-  DequeIterator(ANode<T> currentNode) {
-    this.currentNode = currentNode;
+  DequeIterator(Deque<T> deque) {
+    this.deque = deque;
+    this.index = 0;
   }
 
   public boolean hasNext() {
-    return currentNode.hasNext();
+    return index < deque.size();
   }
 
   public T next() {
-    T temp = this.currentNode.next.getDataPoint();
-    this.currentNode = this.currentNode.next;
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T temp = deque.get(index);
+    index++;
     return temp;
   }
 }
 
-//represents a deque list 
+//represents a deque list - a ring buffer that doubles when it fills up
 class Deque<T> implements Iterable<T> {
-  Sentinel<T> header;
+  Object[] items;
+  int head;
+  int size;
 
   public Iterator<T> iterator() {
-    return new DequeIterator<T>(this.header);
+    return new DequeIterator<T>(this);
   }
 
   Deque() {
-    this.header = new Sentinel<T>();
+    this(16);
   }
 
-  Deque(Sentinel<T> header) {
-    this.header = header;
+  // room for at least this many elements before growing
+  Deque(int capacity) {
+    this.items = new Object[Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1)];
+    this.head = 0;
+    this.size = 0;
   }
 
   // number of nodes in the deque list
   int size() {
-    return this.header.size();
+    return this.size;
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // the element index places from the head
+  @SuppressWarnings("unchecked")
+  T get(int index) {
+    return (T) items[(head + index) & (items.length - 1)];
   }
 
-  // add an element to the start of the list
+  // add an element to the start of the list, returns the head
   T addAtHead(T e) {
-    return header.addAtHead(e);
+    ensureRoom();
+    head = (head - 1) & (items.length - 1);
+    items[head] = e;
+    size++;
+    return e;
   }
 
-  // add an element to the end of the deque list
+  // add an element to the end of the deque list, returns the head
   T addAtBottom(T e) {
-    return header.addAtBottom(e);
+    ensureRoom();
+    items[(head + size) & (items.length - 1)] = e;
+    size++;
+    return get(0);
   }
 
   // remove from the head of the deque list
   T removeFromHead() {
-    if (this.size() == 0) {
+    if (this.size == 0) {
       throw new UnsupportedOperationException();
     }
-    else {
-      return header.removeFromHead();
-    }
+    T temp = get(0);
+    items[head] = null;
+    head = (head + 1) & (items.length - 1);
+    size--;
+    return temp;
   }
 
   // remove from the bottom of the deque list
   T removeFromBottom() {
-    if (this.size() == 0) {
+    if (this.size == 0) {
       throw new UnsupportedOperationException();
     }
-    else {
-      return header.removeFromBottom();
-    }
-  }
-
-  ANode<T> find(IPred<T> pred) {
-    return header.find(pred, true);
+    int last = (head + size - 1) & (items.length - 1);
+    T temp = get(size - 1);
+    items[last] = null;
+    size--;
+    return temp;
   }
 
-  // removes a node from the deque
-  void removeNode(ANode<T> n) {
-    if (!n.equals(header)) {
-      header.removeNodeFirst(n);
+  // index from the head of the first element the predicate holds for, -1 if there is none
+  int find(IPred<T> pred) {
+    for (int i = 0; i < size; i++) {
+      if (pred.apply(get(i))) {
+        return i;
+      }
     }
+    return -1;
   }
-}
 
-//abstract node class
-abstract class ANode<T> {
-  ANode<T> next;
-  ANode<T> prev;
-
-  int size(ANode<T> n) {
-    if (this.next.equals(n)) {
-      return 1;
-    }
-    else {
-      return 1 + this.next.size(n);
+  // removes the element index places from the head, closing the gap from whichever end is
+  // nearer
+  void removeNode(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("no element " + index + " in a deque of " + size);
     }
-  }
-
-  T remove() {
-    this.prev.next = this.next;
-    this.next.prev = this.prev;
-    return this.getDataPoint();
-  }
-
-  ANode<T> find(IPred<T> pred) {
-    return this;
-  }
-
-  void removeNode(ANode<T> n) {
-    if (this.equals(n)) {
-      this.remove();
+    int mask = items.length - 1;
+    if (index < size / 2) {
+      for (int i = index; i > 0; i--) {
+        items[(head + i) & mask] = items[(head + i - 1) & mask];
+      }
+      items[head] = null;
+      head = (head + 1) & mask;
     }
     else {
-      this.next.removeNode(n);
+      for (int i = index; i < size - 1; i++) {
+        items[(head + i) & mask] = items[(head + i + 1) & mask];
+      }
+      items[(head + size - 1) & mask] = null;
     }
+    size--;
   }
 
-  T getDataPoint() {
-    return null;
-  }
-
-  boolean hasNext() {
-    return !next.isSentinel();
-  }
-
-  // checks whether the node is a sentinel
-  boolean isSentinel() {
-    return false;
-  }
-}
-
-//represents a sentinel
-class Sentinel<T> extends ANode<T> {
-
-  Sentinel() {
-    this.next = this;
-    this.prev = this;
+  // empties the deque, keeping its buffer
+  void clear() {
+    Arrays.fill(items, null);
+    head = 0;
+    size = 0;
   }
 
-  int size() {
-    if (this.next.equals(this)) {
-      return 0;
+  // doubles the buffer when it is full, unrolling it so the head is at 0
+  void ensureRoom() {
+    if (size == items.length) {
+      Object[] bigger = new Object[items.length * 2];
+      for (int i = 0; i < size; i++) {
+        bigger[i] = items[(head + i) & (items.length - 1)];
+      }
+      items = bigger;
+      head = 0;
     }
-    return this.next.size(this);
   }
+}
 
-  T addAtHead(T s) {
-    new Node<T>(s, this.next, this);
-    return this.next.getDataPoint();
-  }
+//a deque of ints, so cell indices are never boxed - same ring buffer as Deque
+class IntDeque {
+  int[] items;
+  int head;
+  int size;
 
-  T addAtBottom(T s) {
-    new Node<T>(s, this, this.prev);
-    return this.next.getDataPoint();
+  IntDeque() {
+    this(16);
   }
 
-  T removeFromHead() {
-    return this.next.remove();
+  // room for at least this many ints before growing
+  IntDeque(int capacity) {
+    this.items = new int[Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1)];
+    this.head = 0;
+    this.size = 0;
   }
 
-  T removeFromBottom() {
-    return this.prev.remove();
+  int size() {
+    return this.size;
   }
 
-  // finds node that meets predicate
-  ANode<T> find(IPred<T> pred, boolean b) {
-    return this.next.find(pred);
+  boolean isEmpty() {
+    return this.size == 0;
   }
 
-  // goes through sentinel first to search for the node
-  void removeNodeFirst(ANode<T> node) {
-    this.next.removeNode(node);
+  // the int index places from the head
+  int get(int index) {
+    return items[(head + index) & (items.length - 1)];
   }
 
-  // removes the node
-  void removeNode(ANode<T> node) {
-    return;
+  // add an int to the start of the deque, returns the head
+  int addAtHead(int e) {
+    ensureRoom();
+    head = (head - 1) & (items.length - 1);
+    items[head] = e;
+    size++;
+    return e;
   }
 
-  boolean isSentinel() {
-    return true;
+  // add an int to the end of the deque, returns the head
+  int addAtBottom(int e) {
+    ensureRoom();
+    items[(head + size) & (items.length - 1)] = e;
+    size++;
+    return items[head];
   }
-}
-
-//represents a node 
-class Node<T> extends ANode<T> {
-  T data;
 
-  Node(T data) {
-    this.data = data;
-    this.next = null;
-    this.prev = null;
+  // remove from the head of the deque
+  int removeFromHead() {
+    if (this.size == 0) {
+      throw new UnsupportedOperationException();
+    }
+    int temp = items[head];
+    head = (head + 1) & (items.length - 1);
+    size--;
+    return temp;
   }
 
-  // makes the node w/ certain parameters
-  Node(T data, ANode<T> next, ANode<T> prev) {
-    if ((next == null) || (prev == null)) {
+  // remove from the bottom of the deque
+  int removeFromBottom() {
+    if (this.size == 0) {
       throw new UnsupportedOperationException();
     }
-    this.data = data;
-    this.next = next;
-    this.prev = prev;
-    prev.next = this;
-    next.prev = this;
+    size--;
+    return items[(head + size) & (items.length - 1)];
   }
 
-  ANode<T> find(IPred<T> pred) {
-    if (pred.apply(this.data)) {
-      return this;
-    }
-    else {
-      return this.next.find(pred);
-    }
+  // empties the deque, keeping its buffer
+  void clear() {
+    head = 0;
+    size = 0;
   }
 
-  T getDataPoint() {
-    return this.data;
+  // doubles the buffer when it is full, unrolling it so the head is at 0
+  void ensureRoom() {
+    if (size == items.length) {
+      int[] bigger = new int[items.length * 2];
+      for (int i = 0; i < size; i++) {
+        bigger[i] = items[(head + i) & (items.length - 1)];
+      }
+      items = bigger;
+      head = 0;
+    }
   }
 }
 
@@ -385,6 +523,19 @@ interface IPred<T> {
   boolean apply(T pred);
 }
 
+//holds for anything equal to the given value
+class EqualTo<T> implements IPred<T> {
+  T value;
+
+  EqualTo(T value) {
+    this.value = value;
+  }
+
+  public boolean apply(T other) {
+    return value.equals(other);
+  }
+}
+
 //compare
 interface IComparator<T> {
   boolean apply(T val1, T val2);
@@ -397,6 +548,13 @@ class CompareEdgesWeight implements IComparator<Edge> {
   }
 }
 
+//orders edges by weight, for weights too spread out to count
+class EdgeWeightOrder implements Comparator<Edge> {
+  public int compare(Edge edge1, Edge edge2) {
+    return Integer.compare(edge1.weight, edge2.weight);
+  }
+}
+
 //represents a queue data structure - first in first out 
 class Queue<T> {
   Deque<T> items;
@@ -418,12 +576,12 @@ class Queue<T> {
   }
 
   boolean isEmpty() {
-    return items.size() == 0;
+    return items.isEmpty();
   }
 
-  // removes the last element of the queue
+  // removes the first element of the queue
   T dequeue() {
-    return items.removeFromBottom();
+    return items.removeFromHead();
   }
 
 }
@@ -449,7 +607,7 @@ class Stack<T> {
   }
 
   boolean isEmpty() {
-    return items.size() == 0;
+    return items.isEmpty();
   }
 
   // removes an item from the start of the list
@@ -460,185 +618,1729 @@ class Stack<T> {
 
 //search alg
 abstract class Search {
-  HashMap<Integer, Vertex> ourPath;
+  static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  AMaze grid;
+  int goal;
+
+  // the solve the stamps belong to - a cell was reached in this solve when its visited stamp
+  // is epoch, so starting again just bumps epoch instead of clearing every array. the maze is
+  // only ever read, so any number of searches can share one
+  int epoch;
+  int[] visited;
+  int[] onPath;
+
+  // the cell each cell was reached from, only meaningful where the cell was visited this solve
+  int[] parent;
+
+  // cells taken off the frontier so far
+  int expanded;
+
+  // cells that were reached or put on the path since whoever draws the search last looked,
+  // null unless something is drawing it
+  IntDeque changed;
+
+  Search(AMaze grid) {
+    this.grid = grid;
+    this.goal = grid.cells() - 1;
+    this.epoch = 0;
+    this.visited = new int[grid.cells()];
+    this.onPath = new int[grid.cells()];
+    this.parent = new int[grid.cells()];
+  }
+
+  // is there anything left to search
+  abstract boolean hasNext();
+
+  // takes one step of the search
+  abstract void next();
+
+  // puts the start on the frontier, once reset has forgotten the last solve
+  abstract void start();
+
+  // forgets the last solve and starts again from the start
+  void reset() {
+    if (epoch == Integer.MAX_VALUE) {
+      Arrays.fill(visited, 0);
+      Arrays.fill(onPath, 0);
+      epoch = 0;
+    }
+    epoch++;
+    expanded = 0;
+    visited[0] = epoch;
+    parent[0] = -1;
+    start();
+  }
+
+  // starts recording the cells that change into the given deque
+  void trackChanges(IntDeque changed) {
+    this.changed = changed;
+  }
+
+  // marks the cell as reached from another, or from nowhere yet if from is -1
+  void visit(int cell, int from) {
+    visited[cell] = epoch;
+    parent[cell] = from;
+    if (changed != null) {
+      changed.addAtBottom(cell);
+    }
+  }
+
+  // the cell the search reached this one from, -1 if it has not been reached that way
+  int parentOf(int cell) {
+    return visited[cell] == epoch ? parent[cell] : -1;
+  }
 
   // draws the path
-  void drawPath(HashMap<Integer, Vertex> h, Vertex next) {
-    while (h.containsKey(next.identify())) {
-      next.isInPath = true;
-      next = h.get(next.identify());
+  void drawPath(int next) {
+    while (parentOf(next) >= 0) {
+      onPath[next] = epoch;
+      if (changed != null) {
+        changed.addAtBottom(next);
+      }
+      next = parentOf(next);
+    }
+  }
+
+  // has the search reached this cell
+  boolean travelled(int cell) {
+    return visited[cell] == epoch;
+  }
+
+  // is this cell on the found path
+  boolean isInPath(int cell) {
+    return onPath[cell] == epoch;
+  }
+
+  // has the search reached the goal
+  boolean found() {
+    return goal == 0 || parentOf(goal) >= 0;
+  }
+
+  // the path from the start to the goal as the direction of each step, with no start if the
+  // goal has not been reached
+  PathBits pathBits() {
+    if (!found()) {
+      return new PathBits(-1, 0);
+    }
+    int steps = 0;
+    for (int cell = goal; cell != 0; cell = parentOf(cell)) {
+      steps++;
+    }
+    PathBits bits = new PathBits(0, steps);
+    int cell = goal;
+    for (int i = steps - 1; i >= 0; i--) {
+      int from = parentOf(cell);
+      bits.set(i, grid.directionTo(from, cell));
+      cell = from;
+    }
+    return bits;
+  }
+
+  // the cells from the start to the goal, empty if the goal has not been reached
+  int[] path() {
+    if (!found()) {
+      return new int[0];
+    }
+    int length = 1;
+    for (int cell = goal; cell != 0; cell = parentOf(cell)) {
+      length++;
     }
+    int[] path = new int[length];
+    int cell = goal;
+    for (int i = length - 1; i > 0; i--) {
+      path[i] = cell;
+      cell = parentOf(cell);
+    }
+    path[0] = cell;
+    return path;
+  }
+}
+
+//a path as the direction of each step from its first cell, two bits a step - a path of a
+//million steps is 250KB, where its cells are 4MB
+class PathBits {
+  // the first cell, -1 for no path at all
+  int start;
+  int steps;
+  long[] bits;
+
+  PathBits(int start, int steps) {
+    this.start = start;
+    this.steps = steps;
+    this.bits = new long[(steps + 31) >>> 5];
+  }
+
+  // sets the direction of step i, which has to still be EAST
+  void set(int i, int dir) {
+    bits[i >>> 5] |= (long) dir << ((i & 31) << 1);
+  }
+
+  // the direction of step i
+  int direction(int i) {
+    if (i < 0 || i >= steps) {
+      throw new IndexOutOfBoundsException("no step " + i + " in a path of " + steps);
+    }
+    return (int) (bits[i >>> 5] >>> ((i & 31) << 1)) & 3;
+  }
+
+  // the cells the path goes through in the maze, start and end included
+  int[] cells(AMaze grid) {
+    if (start < 0) {
+      return new int[0];
+    }
+    int[] cells = new int[steps + 1];
+    cells[0] = start;
+    for (int i = 0; i < steps; i++) {
+      cells[i + 1] = grid.neighbour(cells[i], direction(i));
+    }
+    return cells;
   }
 }
 
-//breadth first search - use Queue
+//breadth first search - the deque is used as a queue, in at the bottom and out at the head
 class BreadthFirst extends Search {
-  Queue<Vertex> vertexList;
+  IntDeque vertexList;
+
+  BreadthFirst(AMaze grid) {
+    super(grid);
+    this.vertexList = new IntDeque();
+    reset();
+  }
 
-  BreadthFirst(IList<Vertex> v) {
-    this.vertexList = new Queue<Vertex>();
-    vertexList.enqueue(v.getDataPoint());
-    v.getDataPoint().travelled = true;
-    ourPath = new HashMap<Integer, Vertex>();
+  void start() {
+    vertexList.clear();
+    vertexList.addAtBottom(0);
   }
 
   public boolean hasNext() {
     return !vertexList.isEmpty();
   }
 
-  public Queue<Vertex> next() {
-    Vertex v = vertexList.dequeue();
-    for (Edge e : v.allEdges) {
-      if (!e.to.travelled) {
-        ourPath.put(e.to.identify(), e.from);
-        if (e.to.x == MazeGameWorld.WIDTH - 1 && e.to.y == MazeGameWorld.HEIGHT - 1) {
-          drawPath(ourPath, e.to);
-          vertexList = new Queue<Vertex>();
-        }
-        else {
-          e.to.travelled = true;
-          vertexList.enqueue(e.to);
+  public void next() {
+    int v = vertexList.removeFromHead();
+    expanded++;
+    for (int dir = 0; dir < MazeGrid.DIRECTIONS; dir++) {
+      if (grid.canMove(v, dir)) {
+        int to = grid.neighbour(v, dir);
+        if (!travelled(to)) {
+          visit(to, v);
+          if (to == goal) {
+            drawPath(to);
+            vertexList.clear();
+            return;
+          }
+          else {
+            vertexList.addAtBottom(to);
+          }
         }
       }
     }
-    return vertexList;
   }
 }
 
-//depth first search - depth first 
+//depth first search on an int stack of frames - each frame is a cell and the next direction to
+//try from it, so every wall is looked at once and a step allocates nothing once the stack has
+//grown deep enough
 class DepthFirst extends Search {
-  Stack<Vertex> vertexList;
+  int[] stack;
+  byte[] cursor;
+  int depth;
+
+  DepthFirst(AMaze grid) {
+    super(grid);
+    this.stack = new int[16];
+    this.cursor = new byte[16];
+    reset();
+  }
 
-  DepthFirst(IList<Vertex> v) {
-    this.vertexList = new Stack<Vertex>();
-    vertexList.push(v.getDataPoint());
-    v.getDataPoint().travelled = true;
-    ourPath = new HashMap<Integer, Vertex>();
+  void start() {
+    depth = 0;
+    push(0);
   }
 
-  public boolean hasNext() {
-    return !vertexList.isEmpty();
+  // starts a frame for the cell, trying EAST first
+  void push(int cell) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+      cursor = Arrays.copyOf(cursor, depth * 2);
+    }
+    stack[depth] = cell;
+    cursor[depth] = 0;
+    depth++;
+  }
 
+  public boolean hasNext() {
+    return depth > 0;
   }
 
-  public Stack<Vertex> next() {
-    Vertex v = vertexList.pop();
-    for (Edge e : v.allEdges) {
-      if (!e.to.travelled) {
-        ourPath.put(e.to.identify(), e.from);
-        if (e.to.x == MazeGameWorld.WIDTH - 1 && e.to.y == MazeGameWorld.HEIGHT - 1) {
-          drawPath(ourPath, e.to);
-          vertexList = new Stack<Vertex>();
-        }
-        else {
-          vertexList.push(v);
-          e.to.travelled = true;
-          vertexList.push(e.to);
-          break;
+  // goes on to the next cell the top cell leads to, or backs up when it leads nowhere new
+  public void next() {
+    int top = depth - 1;
+    int v = stack[top];
+    expanded++;
+    while (cursor[top] < MazeGrid.DIRECTIONS) {
+      int dir = cursor[top];
+      cursor[top]++;
+      if (grid.canMove(v, dir)) {
+        int to = grid.neighbour(v, dir);
+        if (!travelled(to)) {
+          visit(to, v);
+          if (to == goal) {
+            drawPath(to);
+            depth = 0;
+          }
+          else {
+            push(to);
+          }
+          return;
         }
       }
     }
-    return vertexList;
+    depth--;
   }
 }
 
-//represents a vertex
-class Vertex {
-  int x;
-  int y;
+//bidirectional breadth first search - grows one frontier from the start and one from the
+//goal, a cell from each in turn, and stitches the two halves together where they touch. a
+//cell reached from the goal is stamped in fromGoalSide as well, and has no parent until the
+//halves meet
+class BidirectionalBreadthFirst extends Search {
+  IntDeque fromStart;
+  IntDeque fromGoal;
+  int[] fromGoalSide;
+  int[] towardGoal;
+  boolean startsTurn;
+
+  BidirectionalBreadthFirst(AMaze grid) {
+    super(grid);
+    this.fromStart = new IntDeque();
+    this.fromGoal = new IntDeque();
+    this.fromGoalSide = new int[grid.cells()];
+    this.towardGoal = new int[grid.cells()];
+    reset();
+  }
 
-  boolean travelled;
+  void reset() {
+    if (epoch == Integer.MAX_VALUE) {
+      Arrays.fill(fromGoalSide, 0);
+    }
+    super.reset();
+  }
 
-  boolean isInPath;
+  void start() {
+    startsTurn = true;
+    fromStart.clear();
+    fromGoal.clear();
+    if (goal != 0) {
+      fromStart.addAtBottom(0);
+      fromGoal.addAtBottom(goal);
+      visit(goal, -1);
+      fromGoalSide[goal] = epoch;
+    }
+  }
 
-  ArrayList<Edge> allEdges;
+  // has the frontier from the goal reached the cell
+  boolean seenFromGoal(int cell) {
+    return fromGoalSide[cell] == epoch;
+  }
 
-  Vertex(int x, int y) {
-    this.x = x;
-    this.y = y;
-    this.allEdges = new ArrayList<Edge>();
-    this.travelled = false;
-    this.isInPath = false;
+  // has the frontier from the start reached the cell
+  boolean seenFromStart(int cell) {
+    return travelled(cell) && !seenFromGoal(cell);
   }
 
-  // identify each vertex
-  int identify() {
-    return 500 * y + x;
+  // the frontiers have to keep touching new cells on both sides to ever meet
+  public boolean hasNext() {
+    return !fromStart.isEmpty() && !fromGoal.isEmpty();
   }
-}
 
-//represents an edge
-class Edge {
-  Vertex to;
-  Vertex from;
-  int weight;
+  public void next() {
+    boolean forward = startsTurn;
+    startsTurn = !startsTurn;
+    IntDeque frontier = forward ? fromStart : fromGoal;
+    int v = frontier.removeFromHead();
+    expanded++;
+    for (int dir = 0; dir < MazeGrid.DIRECTIONS; dir++) {
+      if (grid.canMove(v, dir)) {
+        int to = grid.neighbour(v, dir);
+        if (forward ? seenFromGoal(to) : seenFromStart(to)) {
+          if (forward) {
+            meet(v, to);
+          }
+          else {
+            meet(to, v);
+          }
+          return;
+        }
+        else if (!travelled(to)) {
+          if (forward) {
+            visit(to, v);
+          }
+          else {
+            visit(to, -1);
+            fromGoalSide[to] = epoch;
+            towardGoal[to] = v;
+          }
+          frontier.addAtBottom(to);
+        }
+      }
+    }
+  }
 
-  Edge(Vertex from, Vertex to, int weight) {
-    this.from = from;
-    this.to = to;
-    this.weight = weight;
+  // joins the start's half of the path, ending at a, to the goal's half, starting at b
+  void meet(int a, int b) {
+    parent[b] = a;
+    for (int cell = b; cell != goal; cell = towardGoal[cell]) {
+      parent[towardGoal[cell]] = cell;
+    }
+    drawPath(goal);
+    fromStart.clear();
+    fromGoal.clear();
   }
 }
 
-// the game
-class MazeGameWorld extends World {
-
-  static final int WIDTH = 100;
-
-  static final int HEIGHT = 60;
-
-  static final int SCALE = 10;
-
-  boolean bfs;
-  boolean dfs;
-  BreadthFirst b;
-  DepthFirst d;
+//a* search - always expands the open cell with the smallest known distance plus manhattan
+//distance to the goal, keeping everything in int arrays and an int heap. a cell's distance is
+//only meaningful once it has been visited this solve
+class AStar extends Search {
+  IntMinHeap open;
+  int[] closed;
+  int[] distance;
+
+  AStar(AMaze grid) {
+    super(grid);
+    this.open = new IntMinHeap();
+    this.closed = new int[grid.cells()];
+    this.distance = new int[grid.cells()];
+    reset();
+  }
 
-  IList<Vertex> vertices;
+  void reset() {
+    if (epoch == Integer.MAX_VALUE) {
+      Arrays.fill(closed, 0);
+    }
+    super.reset();
+  }
 
-  IList<Edge> walls;
+  void start() {
+    open.clear();
+    distance[0] = 0;
+    open.add(heuristic(0), 0);
+  }
 
-  MazeGameWorld() {
-    setup();
+  // manhattan distance from the cell to the goal
+  int heuristic(int cell) {
+    return grid.xOf(goal) - grid.xOf(cell) + grid.yOf(goal) - grid.yOf(cell);
   }
 
-  // set up the maze
-  void setup() {
-    ArrayList<ArrayList<Vertex>> v = makeVertices();
-    ArrayList<Edge> allEdges = getAllEdges(v);
-    v = kruskals(v);
-    walls = makeWalls(v, allEdges);
-    vertices = new Empty<Vertex>();
-    for (ArrayList<Vertex> vertexList : v) {
-      for (Vertex vt : vertexList) {
-        vertices = vertices.add(vt);
-      }
-    }
-    bfs = false;
-    dfs = false;
-    b = new BreadthFirst(vertices);
-    d = new DepthFirst(vertices);
+  public boolean hasNext() {
+    return !open.isEmpty();
   }
 
-  // make walls for the maze
-  IList<Edge> makeWalls(ArrayList<ArrayList<Vertex>> v, ArrayList<Edge> all) {
-    IList<Edge> w = new Empty<Edge>();
-    for (Edge e : all) {
-      boolean valid = true;
-      for (ArrayList<Vertex> l : v) {
-        for (Vertex vt : l) {
-          for (Edge e2 : vt.allEdges) {
-            if (e.equals(e2) || (e.to == e2.from && e.from == e2.to)) {
-              valid = false;
-            }
-          }
+  public void next() {
+    int v = open.removeMin();
+    if (closed[v] == epoch) {
+      return;
+    }
+    closed[v] = epoch;
+    expanded++;
+    if (v == goal) {
+      drawPath(v);
+      open.clear();
+      return;
+    }
+    for (int dir = 0; dir < MazeGrid.DIRECTIONS; dir++) {
+      if (grid.canMove(v, dir)) {
+        int to = grid.neighbour(v, dir);
+        if (!travelled(to) || distance[v] + 1 < distance[to]) {
+          distance[to] = distance[v] + 1;
+          visit(to, v);
+          open.add(distance[to] + heuristic(to), to);
         }
       }
-      if (valid) {
-        w = w.add(e);
-      }
     }
-    return w;
+  }
+}
+
+//a binary min heap of int values ordered by int keys - two parallel arrays, nothing boxed
+class IntMinHeap {
+  int[] keys;
+  int[] values;
+  int size;
+
+  IntMinHeap() {
+    this(16);
+  }
+
+  IntMinHeap(int capacity) {
+    this.keys = new int[Math.max(capacity, 1)];
+    this.values = new int[Math.max(capacity, 1)];
+    this.size = 0;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // adds a value with the given key
+  void add(int key, int value) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    int i = size;
+    size++;
+    while (i > 0 && keys[(i - 1) / 2] > key) {
+      int up = (i - 1) / 2;
+      keys[i] = keys[up];
+      values[i] = values[up];
+      i = up;
+    }
+    keys[i] = key;
+    values[i] = value;
+  }
+
+  // the smallest key in the heap
+  int peekKey() {
+    if (size == 0) {
+      throw new UnsupportedOperationException();
+    }
+    return keys[0];
+  }
+
+  // removes and returns the value with the smallest key
+  int removeMin() {
+    if (size == 0) {
+      throw new UnsupportedOperationException();
+    }
+    int min = values[0];
+    size--;
+    int key = keys[size];
+    int value = values[size];
+    int i = 0;
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) {
+        child++;
+      }
+      if (keys[child] >= key) {
+        break;
+      }
+      keys[i] = keys[child];
+      values[i] = values[child];
+      i = child;
+    }
+    keys[i] = key;
+    values[i] = value;
+    return min;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
+
+//breadth first search that expands a whole level of the frontier each step, split into chunks
+//across a fork join pool. a cell is claimed by atomically swapping in its visited stamp, so
+//each cell is reached once however the chunks race, and every chunk writes the cells it
+//reached into its own stretch of a scratch array - packed into the next frontier when the
+//level is done, with no locks. levels are whole, so the path is as short as breadth first's
+class ParallelBreadthFirst extends Search {
+  // the fewest cells worth handing to a task of their own
+  static final int MIN_CHUNK = 64;
+
+  // chunks a level is cut into for each thread of the pool, so a thread that finishes early
+  // can take on more
+  static final int CHUNKS_PER_THREAD = 4;
+
+  ForkJoinPool pool;
+  int minChunk;
+
+  // cells in each chunk of the level being expanded, worked out from the level's size
+  int chunk;
+
+  // the most chunks any level has been cut into
+  int mostChunks;
+
+  int[] frontier;
+  int frontierSize;
+
+  // chunk c writes the cells it reaches from index c * chunk * DIRECTIONS
+  int[] reached;
+  int[] counts;
+
+  ParallelBreadthFirst(AMaze grid) {
+    this(grid, ForkJoinPool.commonPool(), MIN_CHUNK);
+  }
+
+  // a search whose chunks never hold fewer than minChunk cells, unless the level is smaller
+  ParallelBreadthFirst(AMaze grid, ForkJoinPool pool, int minChunk) {
+    super(grid);
+    if (minChunk < 1) {
+      throw new IllegalArgumentException("chunks must hold at least one cell");
+    }
+    this.pool = pool;
+    this.minChunk = minChunk;
+    this.frontier = new int[16];
+    this.reached = new int[0];
+    this.counts = new int[1];
+    reset();
+  }
+
+  void start() {
+    frontier[0] = 0;
+    frontierSize = 1;
+    mostChunks = 0;
+  }
+
+  public boolean hasNext() {
+    return frontierSize > 0;
+  }
+
+  // expands the whole frontier
+  public void next() {
+    int threads = pool.getParallelism() * CHUNKS_PER_THREAD;
+    chunk = Math.max(minChunk, (frontierSize + threads - 1) / threads);
+    int chunks = (frontierSize + chunk - 1) / chunk;
+    mostChunks = Math.max(mostChunks, chunks);
+    if (reached.length < chunks * chunk * MazeGrid.DIRECTIONS) {
+      reached = new int[chunks * chunk * MazeGrid.DIRECTIONS];
+    }
+    if (counts.length < chunks) {
+      counts = new int[chunks];
+    }
+    if (chunks == 1) {
+      expandChunk(0);
+    }
+    else {
+      pool.invoke(new LevelTask(this, 0, chunks));
+    }
+    expanded += frontierSize;
+    int total = 0;
+    for (int c = 0; c < chunks; c++) {
+      total += counts[c];
+    }
+    if (frontier.length < total) {
+      frontier = new int[Math.max(total, frontier.length * 2)];
+    }
+    frontierSize = 0;
+    for (int c = 0; c < chunks; c++) {
+      System.arraycopy(reached, c * chunk * MazeGrid.DIRECTIONS, frontier, frontierSize,
+          counts[c]);
+      frontierSize += counts[c];
+    }
+    if (changed != null) {
+      for (int i = 0; i < frontierSize; i++) {
+        changed.addAtBottom(frontier[i]);
+      }
+    }
+    if (travelled(goal)) {
+      drawPath(goal);
+      frontierSize = 0;
+    }
+  }
+
+  // expands one chunk of the frontier, counting the cells it claimed
+  void expandChunk(int c) {
+    int to = Math.min(frontierSize, (c + 1) * chunk);
+    int out = c * chunk * MazeGrid.DIRECTIONS;
+    int count = 0;
+    for (int i = c * chunk; i < to; i++) {
+      int v = frontier[i];
+      for (int dir = 0; dir < MazeGrid.DIRECTIONS; dir++) {
+        if (grid.canMove(v, dir)) {
+          int next = grid.neighbour(v, dir);
+          if (claim(next)) {
+            parent[next] = v;
+            reached[out + count] = next;
+            count++;
+          }
+        }
+      }
+    }
+    counts[c] = count;
+  }
+
+  // stamps the cell visited, true if this call was the one that stamped it
+  boolean claim(int cell) {
+    int stamp = (int) STAMPS.getOpaque(visited, cell);
+    return stamp != epoch && STAMPS.compareAndSet(visited, cell, stamp, epoch);
+  }
+}
+
+//expands a range of chunks of a level, halving the range until each task has just one
+@SuppressWarnings("serial")
+class LevelTask extends RecursiveAction {
+  ParallelBreadthFirst search;
+  int from;
+  int to;
+
+  LevelTask(ParallelBreadthFirst search, int from, int to) {
+    this.search = search;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected void compute() {
+    if (to - from <= 1) {
+      for (int c = from; c < to; c++) {
+        search.expandChunk(c);
+      }
+    }
+    else {
+      int middle = (from + to) >>> 1;
+      invokeAll(new LevelTask(search, from, middle), new LevelTask(search, middle, to));
+    }
+  }
+}
+
+//an index over a maze that is a tree, as every generated maze is - the depth of each cell below
+//cell 0, and a sparse table of the shallowest cell in every power of two long run of the cells
+//in depth first order. the lowest common ancestor of two cells is then two table lookups, so
+//the distance between any two cells is O(1) and the path between them O(its length). the
+//table is about cells * log2(cells) ints, 80MB for a million cells
+class TreeIndex {
+  AMaze grid;
+  int[] parent;
+  int[] depth;
+
+  // where each cell comes in depth first order - while building, -1 for a cell not yet found
+  // and -2 for one waiting on the stack
+  int[] position;
+
+  // table[k][i] is the shallowest of the 2^k cells from position i, and table[0] the order
+  int[][] table;
+
+  TreeIndex(AMaze grid) {
+    int cells = grid.cells();
+    this.grid = grid;
+    this.parent = new int[cells];
+    this.depth = new int[cells];
+    this.position = new int[cells];
+    int[] order = new int[cells];
+    Arrays.fill(position, -1);
+    int[] stack = new int[16];
+    int top = 0;
+    stack[top++] = 0;
+    parent[0] = -1;
+    int count = 0;
+    while (top > 0) {
+      int v = stack[--top];
+      position[v] = count;
+      order[count++] = v;
+      for (int dir = MazeGrid.DIRECTIONS - 1; dir >= 0; dir--) {
+        if (grid.canMove(v, dir)) {
+          int to = grid.neighbour(v, dir);
+          if (to == parent[v]) {
+            continue;
+          }
+          if (position[to] != -1) {
+            throw new IllegalArgumentException("the maze has a loop");
+          }
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+          }
+          position[to] = -2;
+          parent[to] = v;
+          depth[to] = depth[v] + 1;
+          stack[top++] = to;
+        }
+      }
+    }
+    if (count < cells) {
+      throw new IllegalArgumentException("only " + count + " of " + cells + " cells are joined");
+    }
+    int levels = 32 - Integer.numberOfLeadingZeros(cells);
+    this.table = new int[levels][];
+    table[0] = order;
+    for (int k = 1; k < levels; k++) {
+      int half = 1 << (k - 1);
+      int[] below = table[k - 1];
+      int[] row = new int[cells - (1 << k) + 1];
+      for (int i = 0; i < row.length; i++) {
+        row[i] = shallower(below[i], below[i + half]);
+      }
+      table[k] = row;
+    }
+  }
+
+  // whichever cell is nearer cell 0
+  int shallower(int a, int b) {
+    return depth[a] <= depth[b] ? a : b;
+  }
+
+  // the deepest cell that both cells are under
+  int ancestor(int a, int b) {
+    if (a == b) {
+      return a;
+    }
+    int from = Math.min(position[a], position[b]) + 1;
+    int to = Math.max(position[a], position[b]);
+    int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+    return parent[shallower(table[k][from], table[k][to - (1 << k) + 1])];
+  }
+
+  // the number of steps from one cell to the other
+  int distance(int a, int b) {
+    return depth[a] + depth[b] - 2 * depth[ancestor(a, b)];
+  }
+
+  // the cells from one cell to the other, both included
+  int[] path(int a, int b) {
+    int top = ancestor(a, b);
+    int[] path = new int[depth[a] + depth[b] - 2 * depth[top] + 1];
+    int i = 0;
+    for (int cell = a; cell != top; cell = parent[cell]) {
+      path[i++] = cell;
+    }
+    path[i] = top;
+    int j = path.length - 1;
+    for (int cell = b; cell != top; cell = parent[cell]) {
+      path[j--] = cell;
+    }
+    return path;
+  }
+}
+
+//the way to a goal from every cell at once - one breadth first search out from the goal
+//gives every cell its distance and the direction of its first step back, so finding where any
+//cell leads next is one lookup
+class FlowField {
+  AMaze grid;
+  int goal;
+
+  // steps from each cell to the goal, -1 where the goal cannot be reached
+  int[] distance;
+
+  // the direction to step from each cell towards the goal, -1 at the goal and where it cannot
+  // be reached
+  byte[] toward;
+
+  FlowField(AMaze grid, int goal) {
+    this.grid = grid;
+    this.goal = goal;
+    this.distance = new int[grid.cells()];
+    this.toward = new byte[grid.cells()];
+    Arrays.fill(distance, -1);
+    Arrays.fill(toward, (byte) -1);
+    int[] queue = new int[grid.cells()];
+    int head = 0;
+    int tail = 0;
+    distance[goal] = 0;
+    queue[tail++] = goal;
+    while (head < tail) {
+      int v = queue[head++];
+      for (int dir = 0; dir < MazeGrid.DIRECTIONS; dir++) {
+        if (grid.canMove(v, dir)) {
+          int from = grid.neighbour(v, dir);
+          if (distance[from] < 0) {
+            distance[from] = distance[v] + 1;
+            toward[from] = (byte) ((dir + 2) % MazeGrid.DIRECTIONS);
+            queue[tail++] = from;
+          }
+        }
+      }
+    }
+  }
+
+  // the flow towards the maze's own goal
+  FlowField(AMaze grid) {
+    this(grid, grid.cells() - 1);
+  }
+
+  // the cell one step nearer the goal, or the cell itself at the goal or cut off from it
+  int next(int cell) {
+    return toward[cell] < 0 ? cell : grid.neighbour(cell, toward[cell]);
+  }
+}
+
+//a crowd of agents each following a flow field a cell a tick - where they are is an int per
+//agent, and how many are in each cell an int per cell, so drawing them is one lookup a cell
+class Crowd {
+  FlowField field;
+  int[] at;
+  int[] occupants;
+
+  // agents that have reached the goal
+  int arrived;
+
+  // cells agents have left or entered since whoever draws the crowd last looked, null unless
+  // something is drawing it
+  IntDeque changed;
+
+  // the agents, each put in a random cell
+  Crowd(FlowField field, int agents, Random rand) {
+    if (agents < 0) {
+      throw new IllegalArgumentException("a crowd cannot have " + agents + " agents");
+    }
+    this.field = field;
+    this.at = new int[agents];
+    this.occupants = new int[field.grid.cells()];
+    this.arrived = 0;
+    for (int i = 0; i < agents; i++) {
+      at[i] = rand.nextInt(field.grid.cells());
+      occupants[at[i]]++;
+      if (at[i] == field.goal) {
+        arrived++;
+      }
+    }
+  }
+
+  // starts recording the cells that change into the given deque
+  void trackChanges(IntDeque changed) {
+    this.changed = changed;
+  }
+
+  // is any agent in the cell
+  boolean occupied(int cell) {
+    return occupants[cell] > 0;
+  }
+
+  // moves every agent a cell towards the goal, giving back how many moved
+  int step() {
+    int moved = 0;
+    for (int i = 0; i < at.length; i++) {
+      int from = at[i];
+      int to = field.next(from);
+      if (to != from) {
+        at[i] = to;
+        occupants[from]--;
+        occupants[to]++;
+        moved++;
+        if (to == field.goal) {
+          arrived++;
+        }
+        if (changed != null) {
+          changed.addAtBottom(from);
+          changed.addAtBottom(to);
+        }
+      }
+    }
+    return moved;
+  }
+}
+
+//how much of a search to run each tick - either a number of steps, or as many steps as fit in
+//a time budget. sized from the maze, any maze animates in about TARGET_TICKS ticks
+class SolveScheduler {
+  static final int TARGET_TICKS = 1000;
+
+  static final long DEFAULT_BUDGET = 2000000;
+
+  // steps the clock is read between, so a time budget costs little to keep - a tick on a
+  // budget always takes at least this many
+  static final int CLOCK_STEPS = 64;
+
+  int stepsPerTick;
+
+  // nanoseconds a tick may take, 0 when ticks take a number of steps instead
+  long budgetNanos;
+
+  SolveScheduler(int stepsPerTick, long budgetNanos) {
+    if (stepsPerTick < 1 || budgetNanos < 0) {
+      throw new IllegalArgumentException("need a step a tick and a budget of 0 or more");
+    }
+    this.stepsPerTick = stepsPerTick;
+    this.budgetNanos = budgetNanos;
+  }
+
+  // takes enough steps a tick to search a maze of this many cells in about TARGET_TICKS
+  SolveScheduler(int cells) {
+    this(Math.max(1, cells / TARGET_TICKS), 0);
+  }
+
+  // runs one tick of the search, giving back the steps taken
+  int tick(Search search) {
+    int steps = 0;
+    if (budgetNanos == 0) {
+      while (steps < stepsPerTick && search.hasNext()) {
+        search.next();
+        steps++;
+      }
+    }
+    else {
+      long start = System.nanoTime();
+      while (search.hasNext()) {
+        search.next();
+        steps++;
+        if (steps % CLOCK_STEPS == 0 && System.nanoTime() - start >= budgetNanos) {
+          break;
+        }
+      }
+    }
+    return steps;
+  }
+
+  // runs the search to the end, giving back the steps taken
+  int finish(Search search) {
+    int steps = 0;
+    while (search.hasNext()) {
+      search.next();
+      steps++;
+    }
+    return steps;
+  }
+
+  // twice as much search a tick
+  void faster() {
+    if (budgetNanos == 0) {
+      stepsPerTick = (int) Math.min(Integer.MAX_VALUE, stepsPerTick * 2L);
+    }
+    else {
+      budgetNanos = Math.min(Long.MAX_VALUE / 2, budgetNanos * 2);
+    }
+  }
+
+  // half as much search a tick, but never less than a step
+  void slower() {
+    if (budgetNanos == 0) {
+      stepsPerTick = Math.max(1, stepsPerTick / 2);
+    }
+    else {
+      budgetNanos = Math.max(1, budgetNanos / 2);
+    }
+  }
+
+  // switches between a number of steps and a time budget a tick
+  void toggleBudget() {
+    budgetNanos = budgetNanos == 0 ? DEFAULT_BUDGET : 0;
+  }
+}
+
+//a rectangular maze of cells numbered row by row - each cell only keeps its east and south
+//walls, the other two belong to its neighbours, and every row of walls takes whole 64 bit
+//words: bit 2x of the row is the east wall of cell x and bit 2x + 1 its south wall
+abstract class AMaze {
+  static final int EAST = 0;
+  static final int SOUTH = 1;
+  static final int WEST = 2;
+  static final int NORTH = 3;
+  static final int DIRECTIONS = 4;
+
+  int width;
+  int height;
+  int rowWords;
+
+  AMaze(int width, int height) {
+    if (!fits(width, height)) {
+      throw new IllegalArgumentException("bad maze dimensions " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.rowWords = (2 * width + 63) / 64;
+  }
+
+  // can a width x height maze be made - its wall bits are numbered with ints
+  static boolean fits(int width, int height) {
+    return width >= 1 && height >= 1
+        && (2L * width + 63) / 64 * 64 * height <= Integer.MAX_VALUE;
+  }
+
+  // is bit i of the walls set
+  abstract boolean bit(int i);
+
+  // number of cells in the grid
+  int cells() {
+    return width * height;
+  }
+
+  // index of the cell at x, y
+  int index(int x, int y) {
+    return y * width + x;
+  }
+
+  int xOf(int cell) {
+    return cell % width;
+  }
+
+  int yOf(int cell) {
+    return cell / width;
+  }
+
+  // the cell next to this one in the given direction, -1 if off the grid
+  int neighbour(int cell, int dir) {
+    int x = cell % width;
+    if (dir == EAST) {
+      return x == width - 1 ? -1 : cell + 1;
+    }
+    else if (dir == SOUTH) {
+      return cell + width >= cells() ? -1 : cell + width;
+    }
+    else if (dir == WEST) {
+      return x == 0 ? -1 : cell - 1;
+    }
+    else {
+      return cell < width ? -1 : cell - width;
+    }
+  }
+
+  // is there a wall on the given side of the cell - the edge of the grid counts as one
+  boolean hasWall(int cell, int dir) {
+    return neighbour(cell, dir) < 0 || bit(wallBit(cell, dir));
+  }
+
+  // can we walk from the cell in the given direction
+  boolean canMove(int cell, int dir) {
+    return !hasWall(cell, dir);
+  }
+
+  // the bit holding the wall on the given side of the cell
+  int wallBit(int cell, int dir) {
+    int n = neighbour(cell, dir);
+    if (n < 0) {
+      throw new IllegalArgumentException("cannot open the edge of the maze");
+    }
+    else if (dir == EAST || dir == SOUTH) {
+      return (cell / width) * rowWords * 64 + 2 * (cell % width) + dir;
+    }
+    else {
+      return (n / width) * rowWords * 64 + 2 * (n % width) + dir - 2;
+    }
+  }
+
+  // is there a wall between two adjacent cells
+  boolean hasWallBetween(int a, int b) {
+    return hasWall(Math.min(a, b), directionBetween(a, b));
+  }
+
+  // EAST or SOUTH, whichever way leads from the lower of two adjacent cells to the other
+  int directionBetween(int a, int b) {
+    int low = Math.min(a, b);
+    int high = Math.max(a, b);
+    if (high == low + 1 && low % width != width - 1) {
+      return EAST;
+    }
+    else if (high == low + width) {
+      return SOUTH;
+    }
+    else {
+      throw new IllegalArgumentException("cells " + a + " and " + b + " are not adjacent");
+    }
+  }
+
+  // the direction of the step from one cell to the adjacent other
+  int directionTo(int from, int to) {
+    int dir = directionBetween(from, to);
+    return from < to ? dir : dir + 2;
+  }
+}
+
+//a maze whose walls are packed into longs on the heap - a 10^8 cell maze is about 25MB
+class MazeGrid extends AMaze {
+  // atomic access to single words of walls, for generators that share a grid between threads
+  static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  long[] walls;
+
+  // a grid with every wall up
+  MazeGrid(int width, int height) {
+    super(width, height);
+    this.walls = new long[rowWords * height];
+    Arrays.fill(walls, -1L);
+  }
+
+  // knocks down the wall on the given side of the cell
+  void removeWall(int cell, int dir) {
+    clear(wallBit(cell, dir));
+  }
+
+  // knocks down the wall like removeWall, but safe to call from several threads at once
+  void removeWallAtomic(int cell, int dir) {
+    int i = wallBit(cell, dir);
+    WORDS.getAndBitwiseAnd(walls, i >>> 6, ~(1L << i));
+  }
+
+  // knocks down the wall between two adjacent cells
+  void removeWallBetween(int a, int b) {
+    removeWall(Math.min(a, b), directionBetween(a, b));
+  }
+
+  boolean bit(int i) {
+    return (walls[i >>> 6] & (1L << i)) != 0;
+  }
+
+  void clear(int i) {
+    walls[i >>> 6] &= ~(1L << i);
+  }
+}
+
+//a maze read straight out of a mapped maze file - nothing is copied onto the heap, every
+//wall lookup reads the file's pages
+class MappedMaze extends AMaze {
+  MappedByteBuffer buffer;
+  long seed;
+  String generator;
+
+  MappedMaze(MappedByteBuffer buffer, int width, int height, long seed, String generator) {
+    super(width, height);
+    this.buffer = buffer;
+    this.seed = seed;
+    this.generator = generator;
+  }
+
+  boolean bit(int i) {
+    return (buffer.getLong(MazeFile.HEADER + (i >>> 6) * 8) & (1L << i)) != 0;
+  }
+}
+
+//the binary maze format - a 64 byte header then the rows of walls as AMaze lays them out, as
+//little endian words. the header holds the magic number, version, width, height, seed, words
+//per row and the length and ascii name of the generator that made it
+class MazeFile {
+  static final int MAGIC = 0x4D415A45;
+  static final int VERSION = 1;
+  static final int HEADER = 64;
+  static final int MAX_NAME = 32;
+
+  // saves a grid
+  void write(Path path, MazeGrid grid, long seed, String generator) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      writeHeader(channel, grid.width, grid.height, seed, generator);
+      ChannelRowSink rows = new ChannelRowSink(channel, grid.width);
+      for (int y = 0; y < grid.height; y++) {
+        rows.row(y, Arrays.copyOfRange(grid.walls, y * grid.rowWords, (y + 1) * grid.rowWords));
+      }
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  // generates a maze with eller's alg straight into the file, never holding more than a row
+  void stream(Path path, int width, int height, long seed) throws IOException {
+    if (!AMaze.fits(width, height)) {
+      throw new IllegalArgumentException("bad maze dimensions " + width + "x" + height);
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      EllerGenerator eller = new EllerGenerator();
+      writeHeader(channel, width, height, seed, eller.name());
+      eller.stream(width, height, new Random(seed), new ChannelRowSink(channel, width));
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  void writeHeader(WritableByteChannel channel, int width, int height, long seed,
+      String generator) throws IOException {
+    byte[] name = generator.getBytes(StandardCharsets.US_ASCII);
+    if (name.length > MAX_NAME) {
+      throw new IllegalArgumentException("generator name longer than " + MAX_NAME + " bytes");
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putLong(seed)
+        .putInt((2 * width + 63) / 64).putInt(name.length).put(name);
+    header.clear();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+  }
+
+  // maps a maze file read only
+  MappedMaze map(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      if (size < HEADER || size > Integer.MAX_VALUE || channel.read(header, 0) < HEADER) {
+        throw new IOException(path + " is not a maze file");
+      }
+      int width = header.getInt(8);
+      int height = header.getInt(12);
+      int nameLength = header.getInt(28);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || !AMaze.fits(width, height)
+          || header.getInt(24) != (2L * width + 63) / 64
+          || size != HEADER + (long) header.getInt(24) * 8 * height
+          || nameLength < 0 || nameLength > MAX_NAME) {
+        throw new IOException(path + " is not a maze file");
+      }
+      byte[] name = new byte[nameLength];
+      header.position(32);
+      header.get(name);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      return new MappedMaze(buffer, width, height, header.getLong(16),
+          new String(name, StandardCharsets.US_ASCII));
+    }
+    finally {
+      channel.close();
+    }
+  }
+}
+
+//makes mazes
+interface IMazeGenerator {
+  // a perfect maze of the given size
+  MazeGrid generate(int width, int height, Random rand);
+
+  // what the generator is called in cache keys, maze files and on the command line
+  String name();
+}
+
+//kruskal's alg over the compact grid - edges are ints (2 * cell + EAST or SOUTH), and taking
+//them in shuffled order is the same as sorting them by independent random weights
+class KruskalGenerator implements IMazeGenerator {
+  public String name() {
+    return "kruskal";
+  }
+
+  public MazeGrid generate(int width, int height, Random rand) {
+    MazeGrid grid = new MazeGrid(width, height);
+    int cells = grid.cells();
+    int[] edges = new int[(width - 1) * height + width * (height - 1)];
+    int count = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (grid.neighbour(cell, MazeGrid.EAST) >= 0) {
+        edges[count++] = 2 * cell + MazeGrid.EAST;
+      }
+      if (grid.neighbour(cell, MazeGrid.SOUTH) >= 0) {
+        edges[count++] = 2 * cell + MazeGrid.SOUTH;
+      }
+    }
+    for (int i = count - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = edges[i];
+      edges[i] = edges[j];
+      edges[j] = temp;
+    }
+    UnionFind sets = new UnionFind(cells);
+    int treeEdges = 0;
+    for (int i = 0; i < count && treeEdges < cells - 1; i++) {
+      int cell = edges[i] >>> 1;
+      int dir = edges[i] & 1;
+      if (sets.union(cell, grid.neighbour(cell, dir))) {
+        grid.removeWall(cell, dir);
+        treeEdges++;
+      }
+    }
+    return grid;
+  }
+}
+
+//disjoint sets of ints - union by rank with path compression
+class UnionFind {
+  int[] parent;
+  byte[] rank;
+
+  UnionFind(int size) {
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    for (int i = 0; i < size; i++) {
+      parent[i] = i;
+    }
+  }
+
+  // finds the representative of x's set, pointing the path at it as it goes
+  int find(int x) {
+    int root = x;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+    while (parent[x] != root) {
+      int next = parent[x];
+      parent[x] = root;
+      x = next;
+    }
+    return root;
+  }
+
+  // joins the sets of a and b - false if they were already the same set
+  boolean union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    if (rootA == rootB) {
+      return false;
+    }
+    if (rank[rootA] < rank[rootB]) {
+      parent[rootA] = rootB;
+    }
+    else if (rank[rootA] > rank[rootB]) {
+      parent[rootB] = rootA;
+    }
+    else {
+      parent[rootB] = rootA;
+      rank[rootA]++;
+    }
+    return true;
+  }
+}
+
+//represents a vertex
+class Vertex {
+  int x;
+  int y;
+
+  ArrayList<Edge> allEdges;
+
+  // the width of the maze it is in, so every cell gets its own id
+  int width;
+
+  Vertex(int x, int y, int width) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.allEdges = new ArrayList<Edge>();
+  }
+
+  // identify each vertex
+  int identify() {
+    return width * y + x;
+  }
+}
+
+//represents an edge
+class Edge {
+  Vertex to;
+  Vertex from;
+  int weight;
+
+  Edge(Vertex from, Vertex to, int weight) {
+    this.from = from;
+    this.to = to;
+    this.weight = weight;
+  }
+}
+
+//kruskal's alg split into square tiles - every tile gets its own spanning tree on the fork
+//join pool, from a seed of its own so the maze never depends on how many threads ran, and
+//then one shared union find over the tiles opens just enough seam walls to join them
+class ParallelKruskalGenerator implements IMazeGenerator {
+  // tiles of 256x256 cells, 65536 cells each
+  static final int DEFAULT_TILE_SIDE = 256;
+
+  ForkJoinPool pool;
+
+  // cells along each side of a tile
+  int tile;
+
+  ParallelKruskalGenerator() {
+    this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIDE);
+  }
+
+  ParallelKruskalGenerator(ForkJoinPool pool, int tile) {
+    if (tile < 2) {
+      throw new IllegalArgumentException("tiles must be at least 2 cells wide");
+    }
+    this.pool = pool;
+    this.tile = tile;
+  }
+
+  // the tile side changes the maze, so it is part of the name
+  public String name() {
+    return "parallel-" + tile;
+  }
+
+  public MazeGrid generate(int width, int height, Random rand) {
+    MazeGrid grid = new MazeGrid(width, height);
+    long seed = rand.nextLong();
+    int tilesAcross = (width + tile - 1) / tile;
+    int tilesDown = (height + tile - 1) / tile;
+    pool.invoke(new TileTask(this, grid, seed, tilesAcross, 0, tilesAcross * tilesDown));
+    // a seed of their own for the seams - tile (0, 0) shuffles with the tiles' seed itself
+    joinTiles(grid, new Random(rand.nextLong()), tilesAcross, tilesDown);
+    return grid;
+  }
+
+  // a random spanning tree of the cells of one tile
+  void buildTile(MazeGrid grid, long seed, int tileX, int tileY) {
+    int x0 = tileX * tile;
+    int y0 = tileY * tile;
+    int w = Math.min(tile, grid.width - x0);
+    int h = Math.min(tile, grid.height - y0);
+    int[] edges = new int[(w - 1) * h + w * (h - 1)];
+    int count = 0;
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        if (x < w - 1) {
+          edges[count++] = 2 * (y * w + x) + MazeGrid.EAST;
+        }
+        if (y < h - 1) {
+          edges[count++] = 2 * (y * w + x) + MazeGrid.SOUTH;
+        }
+      }
+    }
+    Random rand = new Random(seed ^ ((tileY * 0x9E3779B97F4A7C15L) + tileX));
+    for (int i = count - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = edges[i];
+      edges[i] = edges[j];
+      edges[j] = temp;
+    }
+    UnionFind sets = new UnionFind(w * h);
+    int treeEdges = 0;
+    for (int i = 0; i < count && treeEdges < w * h - 1; i++) {
+      int local = edges[i] >>> 1;
+      int dir = edges[i] & 1;
+      if (sets.union(local, dir == MazeGrid.EAST ? local + 1 : local + w)) {
+        grid.removeWallAtomic(grid.index(x0 + local % w, y0 + local / w), dir);
+        treeEdges++;
+      }
+    }
+  }
+
+  // opens seam walls, in random order, until every tile is joined to every other
+  void joinTiles(MazeGrid grid, Random rand, int tilesAcross, int tilesDown) {
+    int seams = (tilesAcross - 1) * grid.height + (tilesDown - 1) * grid.width;
+    int[] edges = new int[seams];
+    int count = 0;
+    for (int x = tile - 1; x < grid.width - 1; x += tile) {
+      for (int y = 0; y < grid.height; y++) {
+        edges[count++] = 2 * grid.index(x, y) + MazeGrid.EAST;
+      }
+    }
+    for (int y = tile - 1; y < grid.height - 1; y += tile) {
+      for (int x = 0; x < grid.width; x++) {
+        edges[count++] = 2 * grid.index(x, y) + MazeGrid.SOUTH;
+      }
+    }
+    for (int i = count - 1; i > 0; i--) {
+      int j = rand.nextInt(i + 1);
+      int temp = edges[i];
+      edges[i] = edges[j];
+      edges[j] = temp;
+    }
+    UnionFind tiles = new UnionFind(tilesAcross * tilesDown);
+    for (int i = 0; i < count; i++) {
+      int cell = edges[i] >>> 1;
+      int dir = edges[i] & 1;
+      if (tiles.union(tileOf(grid, cell, tilesAcross),
+          tileOf(grid, grid.neighbour(cell, dir), tilesAcross))) {
+        grid.removeWall(cell, dir);
+      }
+    }
+  }
+
+  // which tile the cell is in
+  int tileOf(MazeGrid grid, int cell, int tilesAcross) {
+    return (grid.yOf(cell) / tile) * tilesAcross + grid.xOf(cell) / tile;
+  }
+}
+
+//builds a range of tiles, halving the range until each task has just one
+@SuppressWarnings("serial")
+class TileTask extends RecursiveAction {
+  ParallelKruskalGenerator generator;
+  MazeGrid grid;
+  long seed;
+  int tilesAcross;
+  int from;
+  int to;
+
+  TileTask(ParallelKruskalGenerator generator, MazeGrid grid, long seed, int tilesAcross,
+      int from, int to) {
+    this.generator = generator;
+    this.grid = grid;
+    this.seed = seed;
+    this.tilesAcross = tilesAcross;
+    this.from = from;
+    this.to = to;
+  }
+
+  protected void compute() {
+    if (to - from <= 1) {
+      for (int t = from; t < to; t++) {
+        generator.buildTile(grid, seed, t % tilesAcross, t / tilesAcross);
+      }
+    }
+    else {
+      int middle = (from + to) >>> 1;
+      invokeAll(new TileTask(generator, grid, seed, tilesAcross, from, middle),
+          new TileTask(generator, grid, seed, tilesAcross, middle, to));
+    }
+  }
+}
+
+//somewhere to put a maze one row at a time - bit 2x of walls is the east wall of cell x and
+//bit 2x + 1 its south wall, and the array is only good until the call returns
+interface IRowSink {
+  void row(int y, long[] walls);
+}
+
+//eller's alg - builds the maze a row at a time, keeping only which set each cell of the
+//current row is in, so a maze of any height takes memory proportional to its width
+class EllerGenerator implements IMazeGenerator {
+
+  public String name() {
+    return "eller";
+  }
+
+  public MazeGrid generate(int width, int height, Random rand) {
+    MazeGrid grid = new MazeGrid(width, height);
+    stream(width, height, rand, new GridRowSink(grid));
+    return grid;
+  }
+
+  // hands the rows of a width x height maze to the sink, top to bottom
+  void stream(int width, int height, Random rand, IRowSink sink) {
+    if (!AMaze.fits(width, height)) {
+      throw new IllegalArgumentException("bad maze dimensions " + width + "x" + height);
+    }
+    int[] sets = new int[width];
+    int[] parent = new int[width];
+    int[] remaining = new int[width];
+    boolean[] wentDown = new boolean[width];
+    long[] walls = new long[(2 * width + 63) / 64];
+    Arrays.fill(sets, -1);
+    for (int y = 0; y < height; y++) {
+      boolean last = y == height - 1;
+      label(sets, remaining);
+      Arrays.fill(walls, -1L);
+      for (int i = 0; i < width; i++) {
+        parent[i] = i;
+      }
+      for (int x = 0; x < width - 1; x++) {
+        int a = root(parent, sets[x]);
+        int b = root(parent, sets[x + 1]);
+        if (a != b && (last || rand.nextBoolean())) {
+          parent[b] = a;
+          walls[(2 * x) >>> 6] &= ~(1L << (2 * x));
+        }
+      }
+      Arrays.fill(remaining, 0);
+      Arrays.fill(wentDown, false);
+      for (int x = 0; x < width; x++) {
+        sets[x] = root(parent, sets[x]);
+        remaining[sets[x]]++;
+      }
+      if (!last) {
+        for (int x = 0; x < width; x++) {
+          int set = sets[x];
+          remaining[set]--;
+          if (rand.nextBoolean() || (remaining[set] == 0 && !wentDown[set])) {
+            wentDown[set] = true;
+            walls[(2 * x + 1) >>> 6] &= ~(1L << (2 * x + 1));
+          }
+          else {
+            sets[x] = -1;
+          }
+        }
+      }
+      sink.row(y, walls);
+    }
+  }
+
+  // gives every cell without a set a label no other cell in the row is using
+  void label(int[] sets, int[] inUse) {
+    Arrays.fill(inUse, 0);
+    for (int set : sets) {
+      if (set >= 0) {
+        inUse[set]++;
+      }
+    }
+    int free = 0;
+    for (int x = 0; x < sets.length; x++) {
+      if (sets[x] < 0) {
+        while (inUse[free] > 0) {
+          free++;
+        }
+        sets[x] = free;
+        inUse[free]++;
+      }
+    }
+  }
+
+  // the set a label has been merged into this row
+  int root(int[] parent, int label) {
+    while (parent[label] != label) {
+      parent[label] = parent[parent[label]];
+      label = parent[label];
+    }
+    return label;
+  }
+}
+
+//copies streamed rows into a grid - the rows are laid out just as the grid keeps them
+class GridRowSink implements IRowSink {
+  MazeGrid grid;
+
+  GridRowSink(MazeGrid grid) {
+    this.grid = grid;
+  }
+
+  public void row(int y, long[] walls) {
+    System.arraycopy(walls, 0, grid.walls, y * grid.rowWords, grid.rowWords);
+  }
+}
+
+//writes streamed rows to a channel, each row as its words of wall bits in little endian order
+class ChannelRowSink implements IRowSink {
+  WritableByteChannel channel;
+  ByteBuffer buffer;
+
+  ChannelRowSink(WritableByteChannel channel, int width) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate((2 * width + 63) / 64 * 8).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public void row(int y, long[] walls) {
+    buffer.clear();
+    for (long word : walls) {
+      buffer.putLong(word);
+    }
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("could not write row " + y, e);
+    }
+  }
+}
+
+//the original kruskal's alg over vertex and edge objects - much bigger and slower than
+//KruskalGenerator, kept to compare against and for its object view of the maze
+class VertexKruskalGenerator implements IMazeGenerator {
+  int width;
+  int height;
+
+  IList<Vertex> vertices;
+
+  IList<Edge> walls;
+
+  public String name() {
+    return "vertex";
+  }
+
+  public MazeGrid generate(int width, int height, Random rand) {
+    MazeGrid grid = new MazeGrid(width, height);
+    this.width = width;
+    this.height = height;
+    ArrayList<ArrayList<Vertex>> v = makeVertices(rand);
+    ArrayList<Edge> allEdges = getAllEdges(v);
+    v = kruskals(v, grid);
+    walls = makeWalls(grid, allEdges);
+    vertices = new TailList<Vertex>();
+    for (ArrayList<Vertex> vertexList : v) {
+      for (Vertex vt : vertexList) {
+        vertices.add(vt);
+      }
+    }
+    return grid;
+  }
+
+  // make walls for the maze - every edge whose wall kruskals left standing in the grid
+  IList<Edge> makeWalls(MazeGrid g, ArrayList<Edge> all) {
+    IList<Edge> w = new TailList<Edge>();
+    for (Edge e : all) {
+      if (g.hasWallBetween(e.from.identify(), e.to.identify())) {
+        w.add(e);
+      }
+    }
+    return w;
   }
 
   // get all the edges in an array list
@@ -651,201 +2353,1445 @@ class MazeGameWorld extends World {
         }
       }
     }
-    return all;
+    return all;
+  }
+
+  // arraylist of vertices
+  ArrayList<ArrayList<Vertex>> makeVertices(Random r) {
+    ArrayList<ArrayList<Vertex>> vertices = new ArrayList<ArrayList<Vertex>>();
+    for (int x = 0; x < width; x++) {
+      ArrayList<Vertex> temp = new ArrayList<Vertex>();
+      for (int y = 0; y < height; y++) {
+        temp.add(new Vertex(x, y, width));
+      }
+      vertices.add(temp);
+    }
+    for (ArrayList<Vertex> vList : vertices) {
+      for (Vertex v : vList) {
+        if (v.x != 0) {
+          v.allEdges.add(new Edge(v, vertices.get(v.x - 1).get(v.y), r.nextInt(1000)));
+        }
+        if (v.x != width - 1) {
+          v.allEdges.add(new Edge(v, vertices.get(v.x + 1).get(v.y), r.nextInt(1000)));
+        }
+        if (v.y != 0) {
+          v.allEdges.add(new Edge(v, vertices.get(v.x).get(v.y - 1), r.nextInt(1000)));
+        }
+        if (v.y != height - 1) {
+          v.allEdges.add(new Edge(v, vertices.get(v.x).get(v.y + 1), r.nextInt(1000)));
+        }
+      }
+    }
+    return vertices;
+  }
+
+  // alg - also knocks down the wall in the grid for every edge it keeps
+  ArrayList<ArrayList<Vertex>> kruskals(ArrayList<ArrayList<Vertex>> v, MazeGrid g) {
+    ArrayList<Edge> allEdges = getAllEdges(v);
+    for (ArrayList<Vertex> i : v) {
+      for (Vertex j : i) {
+        j.allEdges = new ArrayList<Edge>();
+      }
+    }
+    int totalCells = height * width;
+    ArrayList<Edge> allEdgesSorted = sort(allEdges);
+    UnionFind sets = new UnionFind(totalCells);
+    int treeEdges = 0;
+    for (int i = 0; i < allEdgesSorted.size() && treeEdges < totalCells - 1; i++) {
+      Edge e = allEdgesSorted.get(i);
+      if (sets.union(e.to.identify(), e.from.identify())) {
+        treeEdges++;
+        e.from.allEdges.add(e);
+        e.to.allEdges.add(new Edge(e.to, e.from, e.weight));
+        g.removeWallBetween(e.from.identify(), e.to.identify());
+      }
+    }
+    return v;
+  }
+
+  // sorts list in terms of edge weight - a counting sort, since the weights are small ints
+  ArrayList<Edge> sort(ArrayList<Edge> l) {
+    if (l.size() <= 1) {
+      return l;
+    }
+    int min = l.get(0).weight;
+    int max = min;
+    for (Edge e : l) {
+      min = Math.min(min, e.weight);
+      max = Math.max(max, e.weight);
+    }
+    long range = (long) max - min + 1;
+    if (range > 4L * l.size() + 1024) {
+      ArrayList<Edge> sorted = new ArrayList<Edge>(l);
+      sorted.sort(new EdgeWeightOrder());
+      return sorted;
+    }
+    int[] starts = new int[(int) range + 1];
+    for (Edge e : l) {
+      starts[e.weight - min + 1]++;
+    }
+    for (int i = 1; i < starts.length; i++) {
+      starts[i] += starts[i - 1];
+    }
+    Edge[] sorted = new Edge[l.size()];
+    for (Edge e : l) {
+      sorted[starts[e.weight - min]++] = e;
+    }
+    return new ArrayList<Edge>(Arrays.asList(sorted));
+  }
+
+  // merge the list of edges to compare and sort
+  ArrayList<Edge> merge(ArrayList<Edge> l1, ArrayList<Edge> l2) {
+    ArrayList<Edge> l3 = new ArrayList<Edge>(l1.size() + l2.size());
+    IComparator<Edge> c = new CompareEdgesWeight();
+    int i = 0;
+    int j = 0;
+    while (i < l1.size() && j < l2.size()) {
+      if (c.apply(l1.get(i), l2.get(j))) {
+        l3.add(l1.get(i));
+        i++;
+      }
+      else {
+        l3.add(l2.get(j));
+        j++;
+      }
+    }
+    while (i < l1.size()) {
+      l3.add(l1.get(i));
+      i++;
+    }
+    while (j < l2.size()) {
+      l3.add(l2.get(j));
+      j++;
+    }
+    return l3;
+  }
+}
+
+//generates and solves mazes without any world - everything a front end or a batch needs
+class MazeEngine {
+  IMazeGenerator generator;
+  MazeCache cache;
+
+  MazeEngine() {
+    this(new KruskalGenerator());
+  }
+
+  MazeEngine(IMazeGenerator generator) {
+    this(generator, new MazeCache(MazeCache.DEFAULT_BYTES));
+  }
+
+  MazeEngine(IMazeGenerator generator, MazeCache cache) {
+    this.generator = generator;
+    this.cache = cache;
+  }
+
+  // the maze for these dimensions and seed - the same seed always gives the same maze
+  MazeGrid generate(int width, int height, long seed) {
+    return generate(width, height, seed, generator.name());
+  }
+
+  // the maze the named generator makes from this seed, from the cache when it has been made
+  // before - cached grids are shared, so nothing may knock down their walls
+  MazeGrid generate(int width, int height, long seed, String algorithm) {
+    MazeKey key = new MazeKey(width, height, seed, algorithm);
+    MazeGrid grid = cache.get(key);
+    if (grid == null) {
+      grid = generatorNamed(algorithm).generate(width, height, new Random(seed));
+      cache.put(key, grid);
+    }
+    return grid;
+  }
+
+  // the generator that goes by this name
+  IMazeGenerator generatorNamed(String algorithm) {
+    if (algorithm.equals(generator.name())) {
+      return generator;
+    }
+    else if (algorithm.equals("kruskal")) {
+      return new KruskalGenerator();
+    }
+    else if (algorithm.equals("parallel")) {
+      return new ParallelKruskalGenerator();
+    }
+    else if (algorithm.startsWith("parallel-")) {
+      try {
+        return new ParallelKruskalGenerator(ForkJoinPool.commonPool(),
+            Integer.parseInt(algorithm.substring("parallel-".length())));
+      }
+      catch (NumberFormatException e) {
+        throw new IllegalArgumentException("unknown generator " + algorithm);
+      }
+    }
+    else if (algorithm.equals("eller")) {
+      return new EllerGenerator();
+    }
+    else if (algorithm.equals("vertex")) {
+      return new VertexKruskalGenerator();
+    }
+    else {
+      throw new IllegalArgumentException("unknown generator " + algorithm);
+    }
+  }
+
+  // a fresh search of the maze by name
+  Search makeSearch(String algorithm, AMaze grid) {
+    if (algorithm.equals("bfs")) {
+      return new BreadthFirst(grid);
+    }
+    else if (algorithm.equals("dfs")) {
+      return new DepthFirst(grid);
+    }
+    else if (algorithm.equals("astar")) {
+      return new AStar(grid);
+    }
+    else if (algorithm.equals("bidi")) {
+      return new BidirectionalBreadthFirst(grid);
+    }
+    else if (algorithm.equals("pbfs")) {
+      return new ParallelBreadthFirst(grid);
+    }
+    else {
+      throw new IllegalArgumentException("unknown algorithm " + algorithm);
+    }
+  }
+
+  // runs a search of the maze to completion
+  SolveResult solve(AMaze grid, String algorithm) {
+    Search search = makeSearch(algorithm, grid);
+    long start = System.nanoTime();
+    while (search.hasNext()) {
+      search.next();
+    }
+    long elapsed = System.nanoTime() - start;
+    return new SolveResult(algorithm, search.path(), search.expanded, elapsed);
+  }
+
+  // generates a maze and solves it
+  SolveResult run(int width, int height, long seed, String algorithm) {
+    return solve(generate(width, height, seed), algorithm);
+  }
+}
+
+//everything that decides which maze a generator makes
+class MazeKey {
+  int width;
+  int height;
+  long seed;
+  String algorithm;
+
+  MazeKey(int width, int height, long seed, String algorithm) {
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.algorithm = algorithm;
+  }
+
+  public boolean equals(Object other) {
+    if (!(other instanceof MazeKey)) {
+      return false;
+    }
+    MazeKey that = (MazeKey) other;
+    return this.width == that.width && this.height == that.height && this.seed == that.seed
+        && this.algorithm.equals(that.algorithm);
+  }
+
+  public int hashCode() {
+    return Objects.hash(width, height, seed, algorithm);
+  }
+}
+
+//the most recently used mazes, up to a budget of bytes of walls - a maze bigger than the
+//whole budget is never kept. safe to share between threads
+class MazeCache {
+  static final long DEFAULT_BYTES = 64L << 20;
+
+  long capacity;
+  long bytes;
+  LinkedHashMap<MazeKey, MazeGrid> mazes;
+  long hits;
+  long misses;
+  long evictions;
+
+  MazeCache(long capacity) {
+    this.capacity = capacity;
+    this.bytes = 0;
+    this.mazes = new LinkedHashMap<MazeKey, MazeGrid>(16, 0.75f, true);
+  }
+
+  // the cached maze for the key, null if there is none
+  synchronized MazeGrid get(MazeKey key) {
+    MazeGrid grid = mazes.get(key);
+    if (grid == null) {
+      misses++;
+    }
+    else {
+      hits++;
+    }
+    return grid;
+  }
+
+  // keeps the maze, dropping the least recently used ones until it fits
+  synchronized void put(MazeKey key, MazeGrid grid) {
+    long size = sizeOf(grid);
+    if (size > capacity) {
+      return;
+    }
+    MazeGrid old = mazes.put(key, grid);
+    if (old != null) {
+      bytes -= sizeOf(old);
+    }
+    bytes += size;
+    Iterator<MazeGrid> eldest = mazes.values().iterator();
+    while (bytes > capacity) {
+      bytes -= sizeOf(eldest.next());
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  // roughly how much heap a grid takes
+  long sizeOf(MazeGrid grid) {
+    return 8L * grid.walls.length + 64;
+  }
+
+  synchronized int size() {
+    return mazes.size();
+  }
+
+  public synchronized String toString() {
+    return "hits " + hits + ", misses " + misses + ", evictions " + evictions + ", " + size()
+        + " mazes in " + bytes + " bytes";
+  }
+}
+
+//what a finished search found
+class SolveResult {
+  String algorithm;
+  int[] path;
+  int nodesExpanded;
+  long elapsedNanos;
+
+  SolveResult(String algorithm, int[] path, int nodesExpanded, long elapsedNanos) {
+    this.algorithm = algorithm;
+    this.path = path;
+    this.nodesExpanded = nodesExpanded;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  // number of cells on the path, start and goal included
+  int pathLength() {
+    return path.length;
+  }
+
+  public String toString() {
+    return algorithm + "," + nodesExpanded + "," + pathLength() + ","
+        + String.format("%.3f", elapsedNanos / 1e6);
+  }
+}
+
+//gets each batch result as soon as it is done, always on the thread that called run
+interface IBatchSink {
+  void accept(BatchResult result);
+}
+
+//one maze of a batch, generated and solved
+class BatchResult {
+  MazeKey spec;
+  SolveResult solve;
+
+  // from submitting the maze to its result, time waiting for a thread included
+  long latencyNanos;
+
+  BatchResult(MazeKey spec, SolveResult solve, long latencyNanos) {
+    this.spec = spec;
+    this.solve = solve;
+    this.latencyNanos = latencyNanos;
+  }
+
+  public String toString() {
+    return spec.width + "x" + spec.height + "," + spec.seed + "," + spec.algorithm + "," + solve
+        + "," + String.format("%.3f", latencyNanos / 1e6);
+  }
+}
+
+//generates and solves one maze of a batch - every task builds its own search, so the only
+//thing tasks share is the read-only mazes in the engine's cache
+class BatchTask implements Callable<BatchResult> {
+  MazeEngine engine;
+  MazeKey spec;
+  String algorithm;
+
+  // when the task was made, just before it is submitted, so its latency counts the time it
+  // spends queued as well as running
+  long submitted;
+
+  BatchTask(MazeEngine engine, MazeKey spec, String algorithm) {
+    this.engine = engine;
+    this.spec = spec;
+    this.algorithm = algorithm;
+    this.submitted = System.nanoTime();
+  }
+
+  public BatchResult call() {
+    MazeGrid grid = engine.generate(spec.width, spec.height, spec.seed, spec.algorithm);
+    SolveResult solve = engine.solve(grid, algorithm);
+    return new BatchResult(spec, solve, System.nanoTime() - submitted);
+  }
+}
+
+//the specs for a run of consecutive seeds at one size
+class SeedSpecs implements Iterator<MazeKey> {
+  int width;
+  int height;
+  long nextSeed;
+  int remaining;
+  String generator;
+
+  SeedSpecs(int width, int height, long firstSeed, int count, String generator) {
+    this.width = width;
+    this.height = height;
+    this.nextSeed = firstSeed;
+    this.remaining = count;
+    this.generator = generator;
+  }
+
+  public boolean hasNext() {
+    return remaining > 0;
+  }
+
+  public MazeKey next() {
+    if (remaining == 0) {
+      throw new NoSuchElementException("no more seeds");
+    }
+    remaining--;
+    nextSeed++;
+    return new MazeKey(width, height, nextSeed - 1, generator);
+  }
+}
+
+//prints each batch result as a csv line
+class PrintBatchSink implements IBatchSink {
+  public void accept(BatchResult result) {
+    System.out.println(result);
+  }
+}
+
+//keeps every batch result in the order they finished
+class ListBatchSink implements IBatchSink {
+  ArrayList<BatchResult> results = new ArrayList<BatchResult>();
+
+  public void accept(BatchResult result) {
+    results.add(result);
+  }
+}
+
+//runs batches of mazes on a fixed pool of threads. at most maxInFlight mazes are queued or
+//running at once - the next spec is only taken once a result has come back, so the specs
+//can be an endless stream and results never pile up
+class BatchRunner {
+  MazeEngine engine;
+  int threads;
+  int maxInFlight;
+
+  BatchRunner(MazeEngine engine, int threads, int maxInFlight) {
+    if (threads < 1 || maxInFlight < threads) {
+      throw new IllegalArgumentException("need a thread and at least as many mazes in flight");
+    }
+    this.engine = engine;
+    this.threads = threads;
+    this.maxInFlight = maxInFlight;
+  }
+
+  // solves every spec with the algorithm, handing results to the sink as they finish
+  BatchStats run(Iterator<MazeKey> specs, String algorithm, IBatchSink sink)
+      throws InterruptedException, ExecutionException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ExecutorCompletionService<BatchResult> done =
+        new ExecutorCompletionService<BatchResult>(pool);
+    BatchStats stats = new BatchStats();
+    long start = System.nanoTime();
+    int inFlight = 0;
+    try {
+      while (specs.hasNext() || inFlight > 0) {
+        if (specs.hasNext() && inFlight < maxInFlight) {
+          done.submit(new BatchTask(engine, specs.next(), algorithm));
+          inFlight++;
+        }
+        else {
+          BatchResult result = done.take().get();
+          inFlight--;
+          stats.add(result.latencyNanos);
+          sink.accept(result);
+        }
+      }
+    }
+    finally {
+      pool.shutdownNow();
+    }
+    stats.elapsedNanos = System.nanoTime() - start;
+    return stats;
+  }
+}
+
+//throughput and latency of a batch
+class BatchStats {
+  long[] latencies;
+  int count;
+  long elapsedNanos;
+
+  BatchStats() {
+    this.latencies = new long[64];
+    this.count = 0;
+  }
+
+  void add(long latency) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+    latencies[count] = latency;
+    count++;
+  }
+
+  // mazes finished per second of wall clock time
+  double throughput() {
+    return elapsedNanos == 0 ? 0 : count / (elapsedNanos / 1e9);
+  }
+
+  // the latency that this fraction of the mazes finished within
+  long percentile(double fraction) {
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(fraction * count) - 1;
+    return sorted[Math.max(0, Math.min(count - 1, rank))];
+  }
+
+  public String toString() {
+    return String.format("%d mazes in %.3fs, %.1f mazes/s, latency ms p50 %.3f p90 %.3f "
+        + "p99 %.3f max %.3f", count, elapsedNanos / 1e9, throughput(), percentile(0.5) / 1e6,
+        percentile(0.9) / 1e6, percentile(0.99) / 1e6, percentile(1) / 1e6);
+  }
+}
+
+//command line batches
+//  java MazeSolver width height mazes [algorithms] [first seed] - generate and solve
+//  java MazeSolver --write width height seed file - stream a maze file with eller's alg
+//  java MazeSolver --solve algorithms file... - solve mapped maze files
+class MazeSolver {
+  static final String USAGE = "usage: java MazeSolver <width> <height> <mazes> "
+      + "[bfs,dfs,astar,bidi] [first seed]\n"
+      + "       java MazeSolver --write <width> <height> <seed> <file>\n"
+      + "       java MazeSolver --solve <bfs,dfs,astar,bidi> <file>...\n"
+      + "       java MazeSolver --batch <threads> <width> <height> <mazes> [algorithm] "
+      + "[first seed]\n"
+      + "       java MazeSolver --png <width> <height> <seed> <scale> <file> [algorithm]\n"
+      + "       java MazeSolver --view <width> <height> <seed> [algorithm]";
+
+  public static void main(String[] args)
+      throws IOException, InterruptedException, ExecutionException {
+    MazeEngine engine = new MazeEngine();
+    if (args.length == 5 && args[0].equals("--write")) {
+      new MazeFile().stream(Path.of(args[4]), Integer.parseInt(args[1]),
+          Integer.parseInt(args[2]), Long.parseLong(args[3]));
+    }
+    else if (args.length >= 3 && args[0].equals("--solve")) {
+      String[] algorithms = args[1].split(",");
+      System.out.println("file,algorithm,expanded,pathLength,solveMs");
+      for (int i = 2; i < args.length; i++) {
+        MappedMaze maze = new MazeFile().map(Path.of(args[i]));
+        for (String algorithm : algorithms) {
+          System.out.println(args[i] + "," + engine.solve(maze, algorithm));
+        }
+      }
+    }
+    else if (args.length >= 6 && args.length <= 7 && args[0].equals("--png")) {
+      SearchColours colours = solved(engine, args, 6);
+      new MazeRaster(colours.grid, colours, Integer.parseInt(args[4])).writePng(Path.of(args[5]));
+    }
+    else if (args.length >= 4 && args.length <= 5 && args[0].equals("--view")) {
+      SearchColours colours = solved(engine, args, 4);
+      new MazeViewer(new MazeRaster(colours.grid, colours, 1000, 700, 2),
+          "maze-" + args[3]).open();
+    }
+    else if (args.length >= 5 && args.length <= 7 && args[0].equals("--batch")) {
+      int threads = Integer.parseInt(args[1]);
+      String algorithm = args.length > 5 ? args[5] : "bfs";
+      long firstSeed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+      SeedSpecs specs = new SeedSpecs(Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+          firstSeed, Integer.parseInt(args[4]), engine.generator.name());
+      System.out.println("size,seed,generator,algorithm,expanded,pathLength,solveMs,latencyMs");
+      BatchStats stats = new BatchRunner(engine, threads, threads * 4)
+          .run(specs, algorithm, new PrintBatchSink());
+      System.err.println(stats);
+    }
+    else if (args.length >= 3 && args.length <= 5 && !args[0].startsWith("--")) {
+      int width = Integer.parseInt(args[0]);
+      int height = Integer.parseInt(args[1]);
+      int mazes = Integer.parseInt(args[2]);
+      String[] algorithms = (args.length > 3 ? args[3] : "bfs,dfs,astar,bidi").split(",");
+      long firstSeed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+      System.out.println("seed,generateMs,algorithm,expanded,pathLength,solveMs");
+      for (int i = 0; i < mazes; i++) {
+        long seed = firstSeed + i;
+        long start = System.nanoTime();
+        MazeGrid grid = engine.generate(width, height, seed);
+        String generated = seed + "," + String.format("%.3f", (System.nanoTime() - start) / 1e6);
+        for (String algorithm : algorithms) {
+          System.out.println(generated + "," + engine.solve(grid, algorithm));
+        }
+      }
+    }
+    else {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+  }
+
+  // the maze given by the width, height and seed arguments, solved all the way with the
+  // algorithm argument at this position if there is one
+  static SearchColours solved(MazeEngine engine, String[] args, int algorithmArg) {
+    MazeGrid grid = engine.generate(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+        Long.parseLong(args[3]));
+    if (args.length <= algorithmArg) {
+      return new SearchColours(grid, null);
+    }
+    Search search = engine.makeSearch(args[algorithmArg], grid);
+    while (search.hasNext()) {
+      search.next();
+    }
+    return new SearchColours(grid, search);
+  }
+}
+
+//a piece of work to time at a given maze size
+abstract class Benchmark {
+  String name;
+
+  // whatever the last run made, kept so the work cannot be optimized away
+  Object result;
+
+  Benchmark(String name) {
+    this.name = name;
+  }
+
+  // builds what run needs, outside the timing
+  abstract void prepare(int width, int height, Random rand);
+
+  // the work being timed
+  abstract void run();
+}
+
+//generating a whole maze
+class GeneratorBenchmark extends Benchmark {
+  IMazeGenerator generator;
+  int width;
+  int height;
+  Random rand;
+
+  GeneratorBenchmark(String name, IMazeGenerator generator) {
+    super(name);
+    this.generator = generator;
+  }
+
+  void prepare(int width, int height, Random rand) {
+    this.width = width;
+    this.height = height;
+    this.rand = rand;
+  }
+
+  void run() {
+    result = generator.generate(width, height, rand);
+  }
+}
+
+//sorting every candidate edge of a maze by weight
+class SortBenchmark extends Benchmark {
+  VertexKruskalGenerator gen;
+  ArrayList<Edge> edges;
+
+  SortBenchmark() {
+    super("sort");
+  }
+
+  void prepare(int width, int height, Random rand) {
+    gen = new VertexKruskalGenerator();
+    gen.width = width;
+    gen.height = height;
+    edges = gen.getAllEdges(gen.makeVertices(rand));
+  }
+
+  void run() {
+    result = gen.sort(edges);
+  }
+}
+
+//merging the two sorted halves of every candidate edge
+class MergeBenchmark extends Benchmark {
+  VertexKruskalGenerator gen;
+  ArrayList<Edge> left;
+  ArrayList<Edge> right;
+
+  MergeBenchmark() {
+    super("merge");
+  }
+
+  void prepare(int width, int height, Random rand) {
+    gen = new VertexKruskalGenerator();
+    gen.width = width;
+    gen.height = height;
+    ArrayList<Edge> edges = gen.getAllEdges(gen.makeVertices(rand));
+    left = gen.sort(new ArrayList<Edge>(edges.subList(0, edges.size() / 2)));
+    right = gen.sort(new ArrayList<Edge>(edges.subList(edges.size() / 2, edges.size())));
+  }
+
+  void run() {
+    result = gen.merge(left, right);
+  }
+}
+
+//deriving the wall list once kruskals has built the tree
+class MakeWallsBenchmark extends Benchmark {
+  VertexKruskalGenerator gen;
+  MazeGrid grid;
+  ArrayList<Edge> edges;
+
+  MakeWallsBenchmark() {
+    super("makeWalls");
+  }
+
+  void prepare(int width, int height, Random rand) {
+    gen = new VertexKruskalGenerator();
+    gen.width = width;
+    gen.height = height;
+    ArrayList<ArrayList<Vertex>> v = gen.makeVertices(rand);
+    edges = gen.getAllEdges(v);
+    grid = new MazeGrid(width, height);
+    gen.kruskals(v, grid);
+  }
+
+  void run() {
+    result = gen.makeWalls(grid, edges);
+  }
+}
+
+//a search run to completion, built outside the timing and reset before each run so the
+//bytes per op are the solve loop's own
+class SolveBenchmark extends Benchmark {
+  String algorithm;
+  Search search;
+
+  SolveBenchmark(String algorithm) {
+    super("solve " + algorithm);
+    this.algorithm = algorithm;
+  }
+
+  void prepare(int width, int height, Random rand) {
+    MazeEngine engine = new MazeEngine();
+    search = engine.makeSearch(algorithm, engine.generator.generate(width, height, rand));
+  }
+
+  void run() {
+    search.reset();
+    while (search.hasNext()) {
+      search.next();
+    }
+    result = search;
+  }
+}
+
+//distances between random pairs of cells, through a tree index built outside the timing
+class TreeQueryBenchmark extends Benchmark {
+  static final int QUERIES = 100000;
+
+  TreeIndex index;
+  int[] pairs;
+  long total;
+
+  TreeQueryBenchmark() {
+    super("tree distance x100k");
+  }
+
+  void prepare(int width, int height, Random rand) {
+    index = new TreeIndex(new MazeEngine().generator.generate(width, height, rand));
+    pairs = new int[2 * QUERIES];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = rand.nextInt(width * height);
+    }
+  }
+
+  void run() {
+    for (int i = 0; i < pairs.length; i += 2) {
+      total += index.distance(pairs[i], pairs[i + 1]);
+    }
+    result = total;
+  }
+}
+
+//moving a crowd along a flow field, built outside the timing
+class CrowdBenchmark extends Benchmark {
+  static final int AGENTS = 10000;
+
+  FlowField field;
+  Random rand;
+  Crowd crowd;
+
+  CrowdBenchmark() {
+    super("crowd step x10k");
+  }
+
+  void prepare(int width, int height, Random rand) {
+    this.rand = rand;
+    field = new FlowField(new MazeEngine().generator.generate(width, height, rand));
+    crowd = new Crowd(field, AGENTS, rand);
+  }
+
+  void run() {
+    if (crowd.arrived == AGENTS) {
+      crowd = new Crowd(field, AGENTS, rand);
+    }
+    result = crowd.step();
+  }
+}
+
+//drawing a solved maze
+class SceneBenchmark extends Benchmark {
+  MazeGameWorld world;
+
+  // paint the whole frame each run, rather than one tick's worth of changes
+  boolean full;
+
+  SceneBenchmark(boolean full) {
+    super(full ? "makeScene full" : "makeScene tick");
+    this.full = full;
+  }
+
+  void prepare(int width, int height, Random rand) {
+    world = new MazeGameWorld(width, height, 1);
+    world.solveWith("bfs");
+    world.makeScene();
+  }
+
+  void run() {
+    if (full) {
+      world.allDirty = true;
+    }
+    else if (!world.search.hasNext()) {
+      world.solveWith("bfs");
+      world.makeScene();
+    }
+    else {
+      world.onTick();
+    }
+    result = world.makeScene();
+  }
+}
+
+//timing and allocation of one benchmark at one size
+class BenchmarkResult {
+  String name;
+  int width;
+  int height;
+  int iterations;
+  double meanMillis;
+  double minMillis;
+  long bytesPerOp;
+
+  BenchmarkResult(String name, int width, int height, int iterations, double meanMillis,
+      double minMillis, long bytesPerOp) {
+    this.name = name;
+    this.width = width;
+    this.height = height;
+    this.iterations = iterations;
+    this.meanMillis = meanMillis;
+    this.minMillis = minMillis;
+    this.bytesPerOp = bytesPerOp;
+  }
+
+  public String toString() {
+    return String.format("%-20s %11s %12.3f %12.3f %16d", name, width + "x" + height, meanMillis,
+        minMillis, bytesPerOp);
+  }
+}
+
+//runs every benchmark at several maze sizes - java MazeBenchmarks [iterations] [WxH,WxH...]
+//allocation is read from the thread's allocated byte counter, -1 where the jvm has none
+class MazeBenchmarks {
+  static final String DEFAULT_SIZES = "50x30,100x60,400x240,1000x600";
+
+  static final int DEFAULT_ITERATIONS = 5;
+
+  // untimed runs first, enough for the jit to compile the hot loops before anything is timed
+  static final int DEFAULT_WARMUP = 20;
+
+  // the benchmarks run for every size
+  ArrayList<Benchmark> benchmarks() {
+    return new ArrayList<Benchmark>(Arrays.asList(
+        new GeneratorBenchmark("kruskals (grid)", new KruskalGenerator()),
+        new GeneratorBenchmark("kruskals (parallel)", new ParallelKruskalGenerator()),
+        new GeneratorBenchmark("eller", new EllerGenerator()),
+        new GeneratorBenchmark("kruskals (vertices)", new VertexKruskalGenerator()),
+        new SortBenchmark(), new MergeBenchmark(),
+        new MakeWallsBenchmark(), new SolveBenchmark("bfs"), new SolveBenchmark("dfs"),
+        new SolveBenchmark("astar"), new SolveBenchmark("bidi"), new SolveBenchmark("pbfs"),
+        new TreeQueryBenchmark(), new CrowdBenchmark(), new SceneBenchmark(true),
+        new SceneBenchmark(false)));
+  }
+
+  // warms the benchmark up, then times each of the measured runs
+  BenchmarkResult measure(Benchmark b, int width, int height, int warmup, int iterations) {
+    b.prepare(width, height, new Random(width * 31L + height));
+    for (int i = 0; i < warmup; i++) {
+      b.run();
+    }
+    long startBytes = allocatedBytes();
+    long total = 0;
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      b.run();
+      long time = System.nanoTime() - start;
+      total += time;
+      min = Math.min(min, time);
+    }
+    long bytes = startBytes < 0 ? -1 : (allocatedBytes() - startBytes) / iterations;
+    return new BenchmarkResult(b.name, width, height, iterations, total / 1e6 / iterations,
+        min / 1e6, bytes);
+  }
+
+  // bytes allocated so far by every live thread, so work forked onto a pool is counted too,
+  // -1 if the jvm cannot say
+  long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads =
+        java.lang.management.ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    long[] perThread = ((com.sun.management.ThreadMXBean) threads)
+        .getThreadAllocatedBytes(threads.getAllThreadIds());
+    long total = 0;
+    for (long bytes : perThread) {
+      total += Math.max(0, bytes);
+    }
+    return total;
+  }
+
+  // bytes allocated by this thread so far, -1 if the jvm cannot say
+  long threadAllocatedBytes() {
+    java.lang.management.ThreadMXBean threads =
+        java.lang.management.ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+    String sizes = args.length > 1 ? args[1] : DEFAULT_SIZES;
+    int warmup = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WARMUP;
+    MazeBenchmarks runner = new MazeBenchmarks();
+    System.out.println(String.format("%-20s %11s %12s %12s %16s", "benchmark", "size",
+        "mean ms/op", "min ms/op", "bytes/op"));
+    for (String size : sizes.split(",")) {
+      String[] dims = size.split("x");
+      int width = Integer.parseInt(dims[0]);
+      int height = Integer.parseInt(dims[1]);
+      for (Benchmark b : runner.benchmarks()) {
+        System.out.println(runner.measure(b, width, height, warmup, iterations));
+      }
+    }
+  }
+}
+
+//the colour each cell of a maze is drawn in
+interface ICellColours {
+  Color gameColor(int cell);
+}
+
+//colours cells by how far a search of the maze has got, and where a crowd is - either can be
+//null
+class SearchColours implements ICellColours {
+  AMaze grid;
+  Search search;
+  Crowd crowd;
+
+  SearchColours(AMaze grid, Search search) {
+    this.grid = grid;
+    this.search = search;
+  }
+
+  public Color gameColor(int cell) {
+    if (cell == grid.cells() - 1) {
+      return Color.black;
+    }
+    else if (crowd != null && crowd.occupied(cell)) {
+      return Color.orange;
+    }
+    else if (search != null && search.isInPath(cell)) {
+      return Color.red;
+    }
+    else if (cell == 0) {
+      return Color.blue;
+    }
+    else if (search != null && search.travelled(cell)) {
+      return Color.green;
+    }
+    else {
+      return Color.white;
+    }
+  }
+}
+
+//draws part of a maze straight into the int pixels of an image. each cell is scale pixels
+//square with its east and south walls along its right and bottom edges, so at scale 2 a cell
+//is one pixel of colour with its walls beside it, and at scale 1 only the colours show. a frame
+//costs the pixels on view, however big the maze is
+class MazeRaster {
+  static final int MAX_SCALE = 64;
+
+  static final int BACKGROUND = 0x808080;
+
+  AMaze grid;
+  ICellColours colours;
+  int scale;
+
+  // the maze pixel at the top left of the view
+  int originX;
+  int originY;
+
+  int viewWidth;
+  int viewHeight;
+  BufferedImage image;
+  int[] pixels;
+
+  MazeRaster(AMaze grid, ICellColours colours, int viewWidth, int viewHeight, int scale) {
+    if (scale < 1 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException("scale must be between 1 and " + MAX_SCALE);
+    }
+    this.grid = grid;
+    this.colours = colours;
+    this.scale = scale;
+    this.originX = 0;
+    this.originY = 0;
+    resize(viewWidth, viewHeight);
+  }
+
+  // a raster showing the whole maze at the scale
+  MazeRaster(AMaze grid, ICellColours colours, int scale) {
+    this(grid, colours, viewSize(grid.width, scale), viewSize(grid.height, scale), scale);
+  }
+
+  // pixels along a side of the maze, when it fits in an image at all
+  static int viewSize(int cells, int scale) {
+    if ((long) cells * scale > 1 << 15) {
+      throw new IllegalArgumentException(cells + " cells at scale " + scale + " is too big");
+    }
+    return cells * scale;
+  }
+
+  // makes the view this many pixels
+  void resize(int viewWidth, int viewHeight) {
+    if (viewWidth < 1 || viewHeight < 1 || (long) viewWidth * viewHeight > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("bad view " + viewWidth + "x" + viewHeight);
+    }
+    this.viewWidth = viewWidth;
+    this.viewHeight = viewHeight;
+    this.image = new BufferedImage(viewWidth, viewHeight, BufferedImage.TYPE_INT_RGB);
+    this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    pan(0, 0);
   }
 
-  // arraylist of vertices
-  ArrayList<ArrayList<Vertex>> makeVertices() {
-    ArrayList<ArrayList<Vertex>> vertices = new ArrayList<ArrayList<Vertex>>();
-    for (int x = 0; x < WIDTH; x++) {
-      ArrayList<Vertex> temp = new ArrayList<Vertex>();
-      for (int y = 0; y < HEIGHT; y++) {
-        temp.add(new Vertex(x, y));
+  // moves the view by this many pixels, keeping as much of the maze on view as it can
+  void pan(int dx, int dy) {
+    originX = clamp(originX + dx, (long) grid.width * scale - viewWidth);
+    originY = clamp(originY + dy, (long) grid.height * scale - viewHeight);
+  }
+
+  int clamp(long origin, long most) {
+    return (int) Math.max(0, Math.min(origin, most));
+  }
+
+  // doubles the scale, keeping the middle of the view where it is
+  void zoomIn() {
+    zoomTo(Math.min(MAX_SCALE, scale * 2));
+  }
+
+  // halves the scale, keeping the middle of the view where it is
+  void zoomOut() {
+    zoomTo(Math.max(1, scale / 2));
+  }
+
+  void zoomTo(int newScale) {
+    long middleX = ((long) originX + viewWidth / 2) * newScale / scale;
+    long middleY = ((long) originY + viewHeight / 2) * newScale / scale;
+    scale = newScale;
+    originX = 0;
+    originY = 0;
+    pan(clamp(middleX - viewWidth / 2, Integer.MAX_VALUE),
+        clamp(middleY - viewHeight / 2, Integer.MAX_VALUE));
+  }
+
+  // draws the view into the image, and gives back the image
+  BufferedImage render() {
+    int thickness = scale < 2 ? 0 : Math.max(1, scale / 10);
+    int inside = scale - thickness;
+    long mazeWidth = (long) grid.width * scale;
+    long mazeHeight = (long) grid.height * scale;
+    for (int vy = 0; vy < viewHeight; vy++) {
+      int row = vy * viewWidth;
+      long my = (long) originY + vy;
+      if (my >= mazeHeight) {
+        Arrays.fill(pixels, row, row + viewWidth, BACKGROUND);
+        continue;
       }
-      vertices.add(temp);
-    }
-    Random r = new Random();
-    for (ArrayList<Vertex> vList : vertices) {
-      for (Vertex v : vList) {
-        if (v.x != 0) {
-          v.allEdges.add(new Edge(v, vertices.get(v.x - 1).get(v.y), r.nextInt(1000)));
+      int y = (int) (my / scale);
+      boolean southStrip = my % scale >= inside && y < grid.height - 1;
+      int cell = -1;
+      int rgb = 0;
+      for (int vx = 0; vx < viewWidth; vx++) {
+        long mx = (long) originX + vx;
+        if (mx >= mazeWidth) {
+          Arrays.fill(pixels, row + vx, row + viewWidth, BACKGROUND);
+          break;
         }
-        if (v.x != WIDTH - 1) {
-          v.allEdges.add(new Edge(v, vertices.get(v.x + 1).get(v.y), r.nextInt(1000)));
+        int x = (int) (mx / scale);
+        boolean eastStrip = mx % scale >= inside && x < grid.width - 1;
+        int at = grid.index(x, y);
+        if (at != cell) {
+          cell = at;
+          rgb = colours.gameColor(cell).getRGB();
         }
-        if (v.y != 0) {
-          v.allEdges.add(new Edge(v, vertices.get(v.x).get(v.y - 1), r.nextInt(1000)));
+        if ((eastStrip && (southStrip || grid.hasWall(cell, AMaze.EAST)))
+            || (southStrip && grid.hasWall(cell, AMaze.SOUTH))) {
+          pixels[row + vx] = 0;
         }
-        if (v.y != HEIGHT - 1) {
-          v.allEdges.add(new Edge(v, vertices.get(v.x).get(v.y + 1), r.nextInt(1000)));
+        else {
+          pixels[row + vx] = rgb;
         }
       }
     }
-    return vertices;
+    return image;
   }
 
-  // alg
-  ArrayList<ArrayList<Vertex>> kruskals(ArrayList<ArrayList<Vertex>> v) {
-    ArrayList<Edge> allEdges = getAllEdges(v);
-    for (ArrayList<Vertex> i : v) {
-      for (Vertex j : i) {
-        j.allEdges = new ArrayList<Edge>();
-      }
-    }
-    int totalCells = HEIGHT * WIDTH;
-    IList<Edge> sT = new Empty<Edge>();
-    ArrayList<Edge> allEdgesSorted = sort(allEdges);
-    HashMap<Integer, Integer> hash = new HashMap<Integer, Integer>();
-    for (int i = 0; i <= (1000 * HEIGHT) + WIDTH; i++) {
-      hash.put(i, i);
-    }
-    ArrayList<Edge> l = allEdgesSorted;
-    while (sT.listLength() < totalCells - 1) {
-      Edge e = l.get(0);
-      if (this.find(hash, e.to.identify()) != this.find(hash, e.from.identify())) {
-        sT = sT.add(e);
-        e.from.allEdges.add(e);
-        e.to.allEdges.add(new Edge(e.to, e.from, e.weight));
-        int temp = (find(hash, e.to.identify()));
-        hash.remove(find(hash, e.to.identify()));
-        hash.put(temp, find(hash, e.from.identify()));
-      }
-      l.remove(0);
+  // draws the view and saves it as a png
+  void writePng(Path file) throws IOException {
+    if (!ImageIO.write(render(), "png", file.toFile())) {
+      throw new IOException("no png writer");
     }
-    return v;
+  }
+}
+
+//a window onto a maze of any size - + and - zoom, the arrow keys pan and s saves the view
+@SuppressWarnings("serial")
+class MazeViewer extends JComponent implements KeyListener {
+  MazeRaster raster;
+  String name;
+
+  MazeViewer(MazeRaster raster, String name) {
+    this.raster = raster;
+    this.name = name;
+    setPreferredSize(new Dimension(raster.viewWidth, raster.viewHeight));
+    setFocusable(true);
+    addKeyListener(this);
   }
 
-  int find(HashMap<Integer, Integer> hashmap, int x) {
-    if (hashmap.get(x) == x) {
-      return x;
-    }
-    else {
-      return find(hashmap, hashmap.get(x));
+  // opens the viewer in a window of its own
+  void open() {
+    JFrame frame = new JFrame(name);
+    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    frame.add(this);
+    frame.pack();
+    frame.setVisible(true);
+    requestFocusInWindow();
+  }
+
+  protected void paintComponent(Graphics g) {
+    if (getWidth() != raster.viewWidth || getHeight() != raster.viewHeight) {
+      raster.resize(Math.max(1, getWidth()), Math.max(1, getHeight()));
     }
+    g.drawImage(raster.render(), 0, 0, null);
   }
 
-  // sorts list in terms of edge weight
-  ArrayList<Edge> sort(ArrayList<Edge> l) {
-    if (l.size() <= 1) {
-      return l;
+  public void keyPressed(KeyEvent e) {
+    int step = Math.max(raster.viewWidth, raster.viewHeight) / 4;
+    if (e.getKeyChar() == '+' || e.getKeyChar() == '=') {
+      raster.zoomIn();
     }
-    ArrayList<Edge> l1 = new ArrayList<Edge>();
-    ArrayList<Edge> l2 = new ArrayList<Edge>();
-    for (int i = 0; i < l.size() / 2; i++) {
-      l1.add(l.get(i));
+    else if (e.getKeyChar() == '-') {
+      raster.zoomOut();
     }
-    for (int i = l.size() / 2; i < l.size(); i++) {
-      l2.add(l.get(i));
+    else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+      raster.pan(-step, 0);
     }
-    l1 = sort(l1);
-    l2 = sort(l2);
-    return merge(l1, l2);
-  }
-
-  // merge the list of edges to compare and sort
-  ArrayList<Edge> merge(ArrayList<Edge> l1, ArrayList<Edge> l2) {
-    ArrayList<Edge> l3 = new ArrayList<Edge>();
-    IComparator<Edge> c = new CompareEdgesWeight();
-    while (l1.size() > 0 && l2.size() > 0) {
-      if (c.apply(l1.get(0), l2.get(0))) {
-        l3.add(l1.get(0));
-        l1.remove(0);
+    else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+      raster.pan(step, 0);
+    }
+    else if (e.getKeyCode() == KeyEvent.VK_UP) {
+      raster.pan(0, -step);
+    }
+    else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+      raster.pan(0, step);
+    }
+    else if (e.getKeyChar() == 's') {
+      try {
+        raster.writePng(Path.of(name + ".png"));
       }
-      else {
-        l3.add(l2.get(0));
-        l2.remove(0);
+      catch (IOException ex) {
+        throw new UncheckedIOException(ex);
       }
     }
-    while (l1.size() > 0) {
-      l3.add(l1.get(0));
-      l1.remove(0);
+    repaint();
+  }
+
+  public void keyReleased(KeyEvent e) {
+  }
+
+  public void keyTyped(KeyEvent e) {
+  }
+}
+
+// the game
+class MazeGameWorld extends World {
+
+  static final int DEFAULT_WIDTH = 100;
+
+  static final int DEFAULT_HEIGHT = 60;
+
+  static final int DEFAULT_SCALE = 10;
+
+  static final int DEFAULT_AGENTS = 2000;
+
+  int width;
+  int height;
+  int scale;
+
+  MazeEngine engine;
+
+  Random seeds;
+
+  long seed;
+
+  MazeGrid grid;
+
+  Search search;
+
+  // agents heading for the goal, null until a crowd is let loose
+  Crowd crowd;
+
+  // the way to the goal from every cell, worked out the first time a crowd is let loose on
+  // this maze and shared by every crowd after it
+  FlowField field;
+
+  // a search of this maze for each algorithm tried on it, reset rather than made again
+  HashMap<String, Search> searches;
+
+  // how far the search gets each tick
+  SolveScheduler scheduler;
+
+  // the colours of the cells, following the search
+  SearchColours colours;
+
+  // the last frame, kept between frames so only the cells that changed are painted again
+  ComputedPixelImage canvas;
+
+  // the pixels covered by walls, worked out once per maze
+  BitSet wallPixels;
+
+  // cells to paint again in the next frame
+  IntDeque dirty;
+
+  // paint every cell in the next frame
+  boolean allDirty;
+
+  MazeGameWorld() {
+    this(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_SCALE);
+  }
+
+  MazeGameWorld(int width, int height, int scale) {
+    if (width < 1 || height < 1 || scale < 1) {
+      throw new IllegalArgumentException(
+          "bad maze dimensions " + width + "x" + height + " at scale " + scale);
     }
-    while (l2.size() > 0) {
-      l3.add(l2.get(0));
-      l2.remove(0);
+    this.width = width;
+    this.height = height;
+    this.scale = scale;
+    this.engine = new MazeEngine();
+    this.seeds = new Random();
+    this.dirty = new IntDeque();
+    this.searches = new HashMap<String, Search>();
+    this.scheduler = new SolveScheduler(width * height);
+    setup();
+  }
+
+  // set up the maze
+  void setup() {
+    seed = seeds.nextLong();
+    grid = engine.generate(width, height, seed);
+    search = null;
+    crowd = null;
+    field = null;
+    searches.clear();
+    colours = new SearchColours(grid, null);
+    canvas = new ComputedPixelImage(width * scale, height * scale);
+    wallPixels = wallPixels();
+    dirty.clear();
+    allDirty = true;
+  }
+
+  // the pixels under the walls between cells, each wall as thick as a tenth of a cell
+  BitSet wallPixels() {
+    int pixelWidth = width * scale;
+    int thickness = Math.max(1, scale / 10);
+    BitSet pixels = new BitSet(pixelWidth * height * scale);
+    for (int cell = 0; cell < grid.cells(); cell++) {
+      int x = grid.xOf(cell) * scale;
+      int y = grid.yOf(cell) * scale;
+      if (y < (height - 1) * scale && grid.hasWall(cell, MazeGrid.SOUTH)) {
+        int top = y + scale - thickness / 2;
+        for (int py = top; py < top + thickness; py++) {
+          pixels.set(py * pixelWidth + x, py * pixelWidth + x + scale);
+        }
+      }
+      if (x < (width - 1) * scale && grid.hasWall(cell, MazeGrid.EAST)) {
+        int px = x + scale - thickness / 2;
+        for (int py = y; py < y + scale; py++) {
+          pixels.set(py * pixelWidth + px, py * pixelWidth + px + thickness);
+        }
+      }
     }
-    return l3;
+    return pixels;
   }
 
   // color of game
-  Color gameColor(Vertex v) {
-    if (v.x == WIDTH - 1 && v.y == HEIGHT - 1) {
-      return Color.black;
-    }
-    else if (v.isInPath) {
-      return Color.red;
-    }
-    else if (v.x == 0 && v.y == 0) {
-      return Color.blue;
-    }
-    else if (v.travelled) {
-      return Color.green;
-    }
-    else {
-      return Color.white;
-    }
+  Color gameColor(int cell) {
+    return colours.gameColor(cell);
   }
 
   public void onTick() {
-    if (bfs) {
-      if (b.hasNext()) {
-        b.next();
-      }
+    if (search != null) {
+      scheduler.tick(search);
     }
-    if (dfs) {
-      if (d.hasNext()) {
-        d.next();
-      }
+    if (crowd != null) {
+      crowd.step();
     }
   }
 
-  // key pressed for breadth first or depth first or reset map
+  // key pressed for breadth first, depth first, a* or meet in the middle, reset map, save a
+  // picture of it, search faster, slower, with a time budget or to the end, or let a crowd loose
   public void onKeyEvent(String ke) {
     if (ke.equals("b")) {
-      bfs = true;
-      dfs = false;
-      reset();
+      solveWith("bfs");
     }
     else if (ke.equals("d")) {
-      bfs = false;
-      dfs = true;
-      reset();
+      solveWith("dfs");
+    }
+    else if (ke.equals("a")) {
+      solveWith("astar");
+    }
+    else if (ke.equals("m")) {
+      solveWith("bidi");
     }
     else if (ke.equals("r")) {
       setup();
     }
+    else if (ke.equals("p")) {
+      snapshot(Path.of("maze-" + seed + ".png"));
+    }
+    else if (ke.equals("=") || ke.equals("+")) {
+      scheduler.faster();
+    }
+    else if (ke.equals("-")) {
+      scheduler.slower();
+    }
+    else if (ke.equals("t")) {
+      scheduler.toggleBudget();
+    }
+    else if (ke.equals("f") && search != null) {
+      scheduler.finish(search);
+    }
+    else if (ke.equals("c")) {
+      release(DEFAULT_AGENTS);
+    }
   }
 
-  public void reset() {
-    for (Vertex v : vertices) {
-      v.isInPath = false;
-      v.travelled = false;
+  // saves the whole maze as it looks now as a png, two pixels a cell so the walls show
+  void snapshot(Path file) {
+    try {
+      new MazeRaster(grid, colours, 2).writePng(file);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    b = new BreadthFirst(vertices);
-    d = new DepthFirst(vertices);
   }
 
-  public WorldScene makeScene() {
-    WorldScene w = new WorldScene(WIDTH * SCALE, HEIGHT * SCALE);
-    for (Vertex v : vertices) {
-      Color col = gameColor(v);
-      w.placeImageXY(new RectangleImage(SCALE, SCALE, OutlineMode.SOLID, col),
-          (v.x * SCALE) + (SCALE * 1 / 2), (v.y * SCALE) + (SCALE * 1 / 2));
-    }
-    for (Edge e : walls) {
-      if (e.to.x == e.from.x) {
-        w.placeImageXY(new RectangleImage(SCALE, SCALE / 10, OutlineMode.SOLID, Color.black),
-            (e.to.x * SCALE) + (SCALE * 1 / 2),
-            ((e.to.y + e.from.y) * SCALE / 2) + (SCALE * 1 / 2));
+  // scatters a crowd of agents over the maze, all making for the goal
+  void release(int agents) {
+    if (crowd != null) {
+      for (int i = 0; i < crowd.at.length; i++) {
+        dirty.addAtBottom(crowd.at[i]);
       }
-      else {
-        w.placeImageXY(new RectangleImage(SCALE / 10, SCALE, OutlineMode.SOLID, Color.black),
-            ((e.to.x + e.from.x) * SCALE / 2) + (SCALE * 1 / 2),
-            (e.to.y * SCALE) + (SCALE * 1 / 2));
+    }
+    if (field == null) {
+      field = new FlowField(grid);
+    }
+    crowd = new Crowd(field, agents, seeds);
+    crowd.trackChanges(dirty);
+    colours.crowd = crowd;
+    for (int i = 0; i < agents; i++) {
+      dirty.addAtBottom(crowd.at[i]);
+    }
+  }
+
+  // starts a fresh search of the maze, drawing whichever search was started last
+  void solveWith(String algorithm) {
+    search = searches.get(algorithm);
+    if (search == null) {
+      search = engine.makeSearch(algorithm, grid);
+      searches.put(algorithm, search);
+    }
+    else {
+      search.reset();
+    }
+    colours.search = search;
+    dirty.clear();
+    search.trackChanges(dirty);
+    allDirty = true;
+  }
+
+  // paints the cells that changed since the last frame onto the kept frame - the walls are
+  // never painted over, so they are only drawn when the maze is new
+  public WorldScene makeScene() {
+    if (allDirty) {
+      dirty.clear();
+      for (int cell = 0; cell < grid.cells(); cell++) {
+        paintCell(cell);
       }
+      allDirty = false;
+    }
+    while (!dirty.isEmpty()) {
+      paintCell(dirty.removeFromHead());
     }
+    WorldScene w = new WorldScene(width * scale, height * scale);
+    w.placeImageXY(canvas, width * scale / 2, height * scale / 2);
     return w;
   }
+
+  // paints one cell in its colour, leaving its walls black
+  void paintCell(int cell) {
+    Color col = gameColor(cell);
+    int pixelWidth = width * scale;
+    int x = grid.xOf(cell) * scale;
+    int y = grid.yOf(cell) * scale;
+    for (int py = y; py < y + scale; py++) {
+      for (int px = x; px < x + scale; px++) {
+        canvas.setPixel(px, py, wallPixels.get(py * pixelWidth + px) ? Color.black : col);
+      }
+    }
+  }
 }
 
 //examples of the maze game and the testers 
@@ -893,6 +3839,39 @@ class ExamplesMazeGame {
 
   }
 
+  // test the list that keeps its tail
+  void testTailList(Tester t) {
+    IList<String> tl = new TailList<String>();
+    t.checkExpect(tl.isEmpty(), true);
+    t.checkExpect(tl.listLength(), 0);
+    tl.add("MazeGame").add("is");
+    t.checkExpect(tl.listLength(), 2);
+    t.checkExpect(tl.getIndex(1), "is");
+    t.checkExpect(tl.getIndex(5), null);
+    t.checkExpect(tl.getNext(), new Cons<String>("is", new Empty<String>()));
+    tl.appendList(new Cons<String>("very", new Cons<String>("difficult", new Empty<String>())));
+    tl.appendList(tl);
+    t.checkExpect(tl.listLength(), 8);
+    t.checkExpect(tl.getIndex(7), "difficult");
+
+    tl.asCons().add("!");
+    t.checkExpect(tl.listLength(), 9);
+    tl.add("?");
+    t.checkExpect(tl.getIndex(9), "?");
+
+    IList<Integer> big = new TailList<Integer>();
+    for (int i = 0; i < 200000; i++) {
+      big.add(i);
+    }
+    int sum = 0;
+    for (int i : big) {
+      sum += i % 2;
+    }
+    t.checkExpect(sum, 100000);
+    t.checkExpect(new Cons<Integer>(-1, new Empty<Integer>()).appendList(big).listLength(), 200001);
+    t.checkExpect(big.listLength(), 200000);
+  }
+
   // test get Data method
   void testgetDataPoint(Tester t) {
     IList<String> mtList = new Empty<String>();
@@ -923,19 +3902,20 @@ class ExamplesMazeGame {
 
   // test identify function
   void testId(Tester t) {
-    Vertex vertex = new Vertex(0, 0);
-    Vertex vertex2 = new Vertex(2, 9);
-    Vertex vertex3 = new Vertex(3, 4);
+    Vertex vertex = new Vertex(0, 0, 100);
+    Vertex vertex2 = new Vertex(2, 9, 100);
+    Vertex vertex3 = new Vertex(3, 4, 100);
 
     t.checkExpect(vertex.identify(), 0);
-    t.checkExpect(vertex2.identify(), 4502);
-    t.checkExpect(vertex3.identify(), 2003);
+    t.checkExpect(vertex2.identify(), 902);
+    t.checkExpect(vertex3.identify(), 403);
+    t.checkExpect(new Vertex(550, 0, 600).identify() == new Vertex(50, 1, 600).identify(), false);
 
   }
 
   // test merge method
   void testMerge(Tester t) {
-    MazeGameWorld maze = new MazeGameWorld();
+    VertexKruskalGenerator maze = new VertexKruskalGenerator();
 
     Edge edge1 = new Edge(null, null, 35);
     Edge edge2 = new Edge(null, null, 14);
@@ -965,7 +3945,7 @@ class ExamplesMazeGame {
 
   // test sort method
   void testSort(Tester t) {
-    MazeGameWorld maze = new MazeGameWorld();
+    VertexKruskalGenerator maze = new VertexKruskalGenerator();
 
     Edge edge1 = new Edge(null, null, 35);
     Edge edge2 = new Edge(null, null, 14);
@@ -989,24 +3969,972 @@ class ExamplesMazeGame {
     sorted.add(edge1);
 
     t.checkExpect(maze.sort(notSorted), sorted);
+
+    Edge wide1 = new Edge(null, null, 1000000);
+    Edge wide2 = new Edge(null, null, -3);
+    Edge wide3 = new Edge(null, null, 5);
+    ArrayList<Edge> spread = new ArrayList<Edge>(Arrays.asList(wide1, wide2, wide3));
+    t.checkExpect(maze.sort(spread), new ArrayList<Edge>(Arrays.asList(wide2, wide3, wide1)));
   }
 
   // test game world
   void testMazeGameWorld(Tester t) {
     MazeGameWorld maze = new MazeGameWorld();
-    t.checkExpect(maze.vertices.listLength(), MazeGameWorld.WIDTH * MazeGameWorld.HEIGHT);
+    t.checkExpect(maze.grid.cells(), MazeGameWorld.DEFAULT_WIDTH * MazeGameWorld.DEFAULT_HEIGHT);
+    t.checkExpect(passages(maze.grid), maze.grid.cells() - 1);
+    t.checkExpect(maze.search, null);
+    maze.onKeyEvent("b");
+    maze.onTick();
+    t.checkExpect(maze.search.travelled(1) || maze.search.travelled(maze.width), true);
+    t.checkExpect(maze.gameColor(0), Color.blue);
+    maze.onKeyEvent("r");
+    t.checkExpect(maze.search, null);
+
+    t.checkConstructorException(new IllegalArgumentException("bad maze dimensions 0x5 at scale 10"),
+        "MazeGameWorld", 0, 5, 10);
+  }
+
+  // test that painting only the changed cells gives the same frame as painting them all
+  void testIncrementalScene(Tester t) {
+    MazeGameWorld maze = new MazeGameWorld(12, 8, 5);
+    maze.makeScene();
+    t.checkExpect(maze.allDirty, false);
+    t.checkExpect(maze.canvas.getColorAt(0, 0), Color.blue);
+    t.checkExpect(maze.canvas.getColorAt(12 * 5 - 1, 8 * 5 - 1), Color.black);
+    t.checkExpect(maze.wallPixels.cardinality() > 0, true);
+    maze.onKeyEvent("b");
+    t.checkExpect(maze.allDirty, true);
+    maze.makeScene();
+    maze.onTick();
+    t.checkExpect(maze.dirty.isEmpty(), false);
+    maze.makeScene();
+    t.checkExpect(maze.dirty.isEmpty(), true);
+    while (maze.search.hasNext()) {
+      maze.onTick();
+      maze.makeScene();
+    }
+    t.checkExpect(sameAsFullRepaint(maze), true);
+    maze.onKeyEvent("r");
+    t.checkExpect(maze.allDirty, true);
+    t.checkExpect(maze.dirty.isEmpty(), true);
+  }
+
+  // test distances and paths between any two cells through the tree index
+  void testTreeIndex(Tester t) {
+    MazeGrid grid = new MazeEngine().generate(37, 23, 6);
+    TreeIndex index = new TreeIndex(grid);
+    t.checkExpect(index.depth[0], 0);
+    t.checkExpect(index.path(0, grid.cells() - 1), new MazeEngine().solve(grid, "bfs").path);
+    t.checkExpect(index.distance(0, grid.cells() - 1), index.depth[grid.cells() - 1]);
+    t.checkExpect(index.path(5, 5), new int[] {5});
+    t.checkExpect(index.distance(9, 9), 0);
+    Random rand = new Random(1);
+    boolean walks = true;
+    for (int q = 0; q < 300; q++) {
+      int a = rand.nextInt(grid.cells());
+      int b = rand.nextInt(grid.cells());
+      int[] path = index.path(a, b);
+      walks = walks && path.length == index.distance(a, b) + 1 && path[0] == a
+          && path[path.length - 1] == b && index.distance(a, b) == index.distance(b, a);
+      BitSet seen = new BitSet();
+      for (int i = 0; i < path.length; i++) {
+        walks = walks && !seen.get(path[i]);
+        seen.set(path[i]);
+        if (i > 0) {
+          walks = walks && !grid.hasWallBetween(path[i - 1], path[i]);
+        }
+      }
+    }
+    t.checkExpect(walks, true);
+
+    MazeGrid line = new MazeGrid(3, 1);
+    line.removeWallBetween(0, 1);
+    line.removeWallBetween(1, 2);
+    TreeIndex straight = new TreeIndex(line);
+    t.checkExpect(straight.ancestor(2, 1), 1);
+    t.checkExpect(straight.path(2, 0), new int[] {2, 1, 0});
+    t.checkExpect(new TreeIndex(new MazeGrid(1, 1)).distance(0, 0), 0);
+
+    MazeGrid square = new MazeGrid(2, 2);
+    square.removeWallBetween(0, 1);
+    square.removeWallBetween(0, 2);
+    square.removeWallBetween(1, 3);
+    square.removeWallBetween(2, 3);
+    t.checkConstructorException(new IllegalArgumentException("the maze has a loop"),
+        "TreeIndex", square);
+    MazeGrid snake = new MazeGrid(3, 3);
+    int[] turns = new int[] {0, 1, 2, 5, 4, 3, 6, 7, 8};
+    for (int i = 1; i < turns.length; i++) {
+      snake.removeWallBetween(turns[i - 1], turns[i]);
+    }
+    snake.removeWallBetween(4, 7);
+    t.checkConstructorException(new IllegalArgumentException("the maze has a loop"),
+        "TreeIndex", snake);
+    t.checkConstructorException(new IllegalArgumentException("only 1 of 4 cells are joined"),
+        "TreeIndex", new MazeGrid(2, 2));
+  }
+
+  // test the flow field to the goal and a crowd following it
+  void testFlowField(Tester t) {
+    MazeGrid grid = new MazeEngine().generate(45, 30, 14);
+    FlowField field = new FlowField(grid);
+    TreeIndex index = new TreeIndex(grid);
+    boolean downhill = true;
+    for (int cell = 0; cell < grid.cells(); cell++) {
+      downhill = downhill && field.distance[cell] == index.distance(cell, field.goal);
+      if (cell != field.goal) {
+        downhill = downhill && field.distance[field.next(cell)] == field.distance[cell] - 1
+            && !grid.hasWallBetween(cell, field.next(cell));
+      }
+    }
+    t.checkExpect(downhill, true);
+    t.checkExpect(field.next(field.goal), field.goal);
+    t.checkExpect(field.toward[field.goal], (byte) -1);
+    FlowField corner = new FlowField(grid, 0);
+    t.checkExpect(corner.distance[grid.cells() - 1], field.distance[0]);
+
+    FlowField cutOff = new FlowField(new MazeGrid(3, 1));
+    t.checkExpect(cutOff.distance[0], -1);
+    t.checkExpect(cutOff.next(0), 0);
+
+    Crowd crowd = new Crowd(field, 3000, new Random(2));
+    int sum = 0;
+    for (int cell = 0; cell < grid.cells(); cell++) {
+      sum += crowd.occupants[cell];
+    }
+    t.checkExpect(sum, 3000);
+    int farthest = 0;
+    for (int i = 0; i < crowd.at.length; i++) {
+      farthest = Math.max(farthest, field.distance[crowd.at[i]]);
+    }
+    int ticks = 0;
+    while (crowd.step() > 0) {
+      ticks++;
+    }
+    t.checkExpect(ticks, farthest);
+    t.checkExpect(crowd.arrived, 3000);
+    t.checkExpect(crowd.occupants[field.goal], 3000);
+    t.checkConstructorException(new IllegalArgumentException("a crowd cannot have -1 agents"),
+        "Crowd", field, -1, new Random());
+
+    MazeGameWorld maze = new MazeGameWorld(30, 20, 3);
+    maze.makeScene();
+    maze.onKeyEvent("c");
+    t.checkExpect(maze.crowd.at.length, MazeGameWorld.DEFAULT_AGENTS);
+    FlowField shared = maze.field;
+    t.checkExpect(maze.crowd.field == shared, true);
+    int agent = maze.crowd.at[0];
+    t.checkExpect(agent == maze.grid.cells() - 1 || maze.gameColor(agent).equals(Color.orange),
+        true);
+    for (int i = 0; i < 10; i++) {
+      maze.onTick();
+      maze.makeScene();
+    }
+    maze.onKeyEvent("c");
+    t.checkExpect(maze.crowd.field == shared, true);
+    maze.onTick();
+    maze.makeScene();
+    t.checkExpect(sameAsFullRepaint(maze), true);
+    maze.onKeyEvent("r");
+    t.checkExpect(maze.crowd, null);
+    t.checkExpect(maze.field, null);
+  }
+
+  // test depth first search keeping a direction cursor in each frame of its stack
+  void testDepthFirst(Tester t) {
+    MazeGrid corridor = new MazeGrid(4, 1);
+    corridor.removeWallBetween(0, 1);
+    corridor.removeWallBetween(1, 2);
+    corridor.removeWallBetween(2, 3);
+    DepthFirst dfs = new DepthFirst(corridor);
+    t.checkExpect(dfs.depth, 1);
+    dfs.next();
+    t.checkExpect(dfs.depth, 2);
+    t.checkExpect(dfs.stack[1], 1);
+    t.checkExpect(dfs.cursor[0], (byte) (MazeGrid.EAST + 1));
+    dfs.next();
+    dfs.next();
+    t.checkExpect(dfs.hasNext(), false);
+    t.checkExpect(dfs.path(), new int[] {0, 1, 2, 3});
+
+    MazeGrid grid = new MazeEngine().generate(60, 40, 21);
+    DepthFirst deep = new DepthFirst(grid);
+    while (deep.hasNext()) {
+      deep.next();
+    }
+    t.checkExpect(deep.path(), new MazeEngine().solve(grid, "bfs").path);
+    t.checkExpect(deep.expanded < 2 * grid.cells(), true);
+    t.checkExpect(deep.stack.length >= deep.path().length - 1, true);
+    t.checkExpect(solvesWithoutGarbage(deep), true);
+
+    MazeGameWorld maze = new MazeGameWorld(20, 10, 2);
+    maze.scheduler.stepsPerTick = 1;
+    maze.onKeyEvent("d");
+    maze.onTick();
+    t.checkExpect(maze.search.expanded, 1);
+    t.checkExpect(maze.search.travelled(1) || maze.search.travelled(20), true);
+  }
+
+  // test paths packed two bits a step, and solving again without making garbage
+  void testPathBits(Tester t) {
+    MazeGrid grid = new MazeEngine().generate(50, 40, 8);
+    String[] algorithms = new String[] {"bfs", "dfs", "astar", "bidi", "pbfs"};
+    for (String algorithm : algorithms) {
+      Search search = new MazeEngine().makeSearch(algorithm, grid);
+      t.checkExpect(search.pathBits().cells(grid), new int[0]);
+      while (search.hasNext()) {
+        search.next();
+      }
+      PathBits bits = search.pathBits();
+      t.checkExpect(bits.steps, search.path().length - 1);
+      t.checkExpect(bits.cells(grid), search.path());
+    }
+
+    MazeGrid line = new MazeGrid(2, 2);
+    line.removeWallBetween(0, 2);
+    line.removeWallBetween(2, 3);
+    line.removeWallBetween(3, 1);
+    t.checkExpect(line.directionTo(3, 1), MazeGrid.NORTH);
+    t.checkExpect(line.directionTo(3, 2), MazeGrid.WEST);
+    Search dfs = new DepthFirst(line);
+    while (dfs.hasNext()) {
+      dfs.next();
+    }
+    PathBits bits = dfs.pathBits();
+    t.checkExpect(bits.steps, 2);
+    t.checkExpect(bits.direction(0), MazeGrid.SOUTH);
+    t.checkExpect(bits.direction(1), MazeGrid.EAST);
+    t.checkExpect(bits.bits.length, 1);
+    t.checkException(new IndexOutOfBoundsException("no step 2 in a path of 2"), bits,
+        "direction", 2);
+    PathBits longer = new PathBits(0, 40);
+    longer.set(33, MazeGrid.NORTH);
+    t.checkExpect(longer.bits.length, 2);
+    t.checkExpect(longer.direction(33), MazeGrid.NORTH);
+    t.checkExpect(longer.direction(32), MazeGrid.EAST);
+
+    Search bfs = new BreadthFirst(grid);
+    while (bfs.hasNext()) {
+      bfs.next();
+    }
+    t.checkExpect(solvesWithoutGarbage(bfs), true);
+  }
+
+  // test starting searches again by bumping the epoch, and searches sharing a maze
+  void testSearchReset(Tester t) {
+    MazeGrid grid = new MazeEngine().generate(40, 30, 12);
+    String[] algorithms = new String[] {"bfs", "dfs", "astar", "bidi", "pbfs"};
+    for (String algorithm : algorithms) {
+      Search search = new MazeEngine().makeSearch(algorithm, grid);
+      Search beside = new MazeEngine().makeSearch(algorithm, grid);
+      while (search.hasNext()) {
+        search.next();
+        if (beside.hasNext()) {
+          beside.next();
+        }
+      }
+      int[] path = search.path();
+      int expanded = search.expanded;
+      t.checkExpect(search.found(), true);
+      search.reset();
+      t.checkExpect(search.epoch, 2);
+      t.checkExpect(search.found(), false);
+      t.checkExpect(search.expanded, 0);
+      t.checkExpect(search.travelled(0), true);
+      t.checkExpect(search.isInPath(path[1]), false);
+      t.checkExpect(search.parentOf(path[1]), -1);
+      search.epoch = Integer.MAX_VALUE;
+      search.reset();
+      t.checkExpect(search.epoch, 1);
+      t.checkExpect(search.travelled(path[1]), false);
+      while (search.hasNext()) {
+        search.next();
+      }
+      t.checkExpect(search.path(), path);
+      t.checkExpect(search.expanded, expanded);
+      t.checkExpect(beside.path(), path);
+    }
+
+    MazeGameWorld maze = new MazeGameWorld(30, 20, 2);
+    maze.onKeyEvent("b");
+    Search bfs = maze.search;
+    maze.onKeyEvent("f");
+    maze.onKeyEvent("d");
+    t.checkExpect(maze.colours.search == maze.search, true);
+    t.checkExpect(maze.search == bfs, false);
+    maze.onKeyEvent("b");
+    t.checkExpect(maze.search == bfs, true);
+    t.checkExpect(bfs.epoch, 2);
+    t.checkExpect(bfs.expanded, 0);
+    maze.onKeyEvent("r");
+    maze.onKeyEvent("b");
+    t.checkExpect(maze.search == bfs, false);
+  }
+
+  // test the level at a time parallel breadth first search
+  void testParallelBreadthFirst(Tester t) {
+    ForkJoinPool four = new ForkJoinPool(4);
+    MazeEngine engine = new MazeEngine();
+    for (int seed = 0; seed < 5; seed++) {
+      MazeGrid grid = engine.generate(70, 45, seed);
+      ParallelBreadthFirst wide = new ParallelBreadthFirst(grid, four, 2);
+      while (wide.hasNext()) {
+        wide.next();
+      }
+      t.checkExpect(wide.path(), engine.solve(grid, "bfs").path);
+    }
+    MazeGrid open = new MazeGrid(40, 30);
+    for (int cell = 0; cell < open.cells(); cell++) {
+      if (open.xOf(cell) < 39) {
+        open.removeWall(cell, MazeGrid.EAST);
+      }
+      if (open.yOf(cell) < 29) {
+        open.removeWall(cell, MazeGrid.SOUTH);
+      }
+    }
+    ParallelBreadthFirst level = new ParallelBreadthFirst(open, four, 1);
+    level.next();
+    t.checkExpect(level.frontierSize, 2);
+    t.checkExpect(level.expanded, 1);
+    level.next();
+    t.checkExpect(level.frontierSize, 3);
+    while (level.hasNext()) {
+      level.next();
+    }
+    t.checkExpect(level.path().length, 40 + 30 - 1);
+    t.checkExpect(level.parentOf(0), -1);
+    t.checkExpect(level.travelled(open.cells() - 2), true);
+    t.checkExpect(engine.solve(open, "pbfs").pathLength(), engine.solve(open, "bfs").pathLength());
+    t.checkExpect(engine.solve(new MazeGrid(1, 1), "pbfs").path, new int[] {0});
+    t.checkConstructorException(new IllegalArgumentException("chunks must hold at least one cell"),
+        "ParallelBreadthFirst", open, four, 0);
+    MazeGrid big = engine.generate(600, 400, 3);
+    ParallelBreadthFirst shared = new ParallelBreadthFirst(big);
+    while (shared.hasNext()) {
+      shared.next();
+    }
+    t.checkExpect(shared.mostChunks > 1, true);
+    t.checkExpect(shared.path(), engine.solve(big, "bfs").path);
+    ParallelBreadthFirst quarters = new ParallelBreadthFirst(open, four, 1);
+    for (int step = 0; step < 30; step++) {
+      quarters.next();
+    }
+    t.checkExpect(quarters.frontierSize, 30);
+    t.checkExpect(quarters.mostChunks, 16);
+    four.shutdown();
+  }
+
+  // test running several steps of a search a tick
+  void testSolveScheduler(Tester t) {
+    MazeGrid grid = new MazeEngine().generate(100, 60, 9);
+    SolveScheduler steps = new SolveScheduler(grid.cells());
+    t.checkExpect(steps.stepsPerTick, 6);
+    t.checkExpect(new SolveScheduler(50).stepsPerTick, 1);
+    Search bfs = new BreadthFirst(grid);
+    t.checkExpect(steps.tick(bfs), 6);
+    t.checkExpect(bfs.expanded, 6);
+    steps.faster();
+    t.checkExpect(steps.tick(bfs), 12);
+    steps.slower();
+    steps.slower();
+    steps.slower();
+    steps.slower();
+    t.checkExpect(steps.stepsPerTick, 1);
+    int left = steps.finish(bfs);
+    t.checkExpect(bfs.hasNext(), false);
+    t.checkExpect(bfs.expanded, 18 + left);
+    t.checkExpect(steps.tick(bfs), 0);
+
+    SolveScheduler budget = new SolveScheduler(1, 1);
+    Search dfs = new DepthFirst(grid);
+    t.checkExpect(budget.tick(dfs), SolveScheduler.CLOCK_STEPS);
+    budget.toggleBudget();
+    t.checkExpect(budget.budgetNanos, 0L);
+    budget.toggleBudget();
+    t.checkExpect(budget.budgetNanos, SolveScheduler.DEFAULT_BUDGET);
+    budget.budgetNanos = Long.MAX_VALUE / 2;
+    budget.faster();
+    t.checkExpect(budget.budgetNanos, Long.MAX_VALUE / 2);
+    budget.budgetNanos = Long.MAX_VALUE;
+    t.checkExpect(budget.tick(dfs) > SolveScheduler.CLOCK_STEPS, true);
+    t.checkExpect(dfs.hasNext(), false);
+    t.checkExpect(dfs.found(), true);
+    t.checkConstructorException(
+        new IllegalArgumentException("need a step a tick and a budget of 0 or more"),
+        "SolveScheduler", 0, 0L);
+
+    MazeGameWorld maze = new MazeGameWorld(200, 100, 1);
+    maze.onKeyEvent("b");
+    maze.onTick();
+    t.checkExpect(maze.search.expanded, 20);
+    maze.onKeyEvent("+");
+    maze.onTick();
+    t.checkExpect(maze.search.expanded, 60);
+    maze.onKeyEvent("f");
+    t.checkExpect(maze.search.hasNext(), false);
+    t.checkExpect(maze.search.found(), true);
+  }
+
+  // test drawing mazes straight into image pixels
+  void testMazeRaster(Tester t) throws IOException {
+    MazeGrid open = new MazeGrid(4, 3);
+    open.removeWallBetween(0, 1);
+    SearchColours colours = new SearchColours(open, null);
+    MazeRaster whole = new MazeRaster(open, colours, 2);
+    t.checkExpect(whole.viewWidth, 8);
+    t.checkExpect(whole.viewHeight, 6);
+    BufferedImage image = whole.render();
+    t.checkExpect(image.getRGB(0, 0), Color.blue.getRGB());
+    t.checkExpect(image.getRGB(1, 0), Color.blue.getRGB());
+    t.checkExpect(image.getRGB(2, 0), Color.white.getRGB());
+    t.checkExpect(image.getRGB(3, 0), Color.black.getRGB());
+    t.checkExpect(image.getRGB(1, 1), Color.black.getRGB());
+    t.checkExpect(image.getRGB(7, 5), Color.black.getRGB());
+    t.checkExpect(image.getRGB(7, 0), Color.white.getRGB());
+    t.checkExpect(new MazeRaster(open, colours, 1).render().getRGB(3, 2),
+        Color.black.getRGB());
+
+    MazeGrid big = new MazeEngine().generate(300, 200, 4);
+    Search bfs = new MazeEngine().makeSearch("bfs", big);
+    while (bfs.hasNext()) {
+      bfs.next();
+    }
+    MazeRaster view = new MazeRaster(big, new SearchColours(big, bfs), 100, 50, 4);
+    int onPath = bfs.path()[1];
+    t.checkExpect(view.render().getRGB(1, 1), Color.blue.getRGB());
+    t.checkExpect(view.image.getRGB(big.xOf(onPath) * 4 + 1, big.yOf(onPath) * 4 + 1),
+        Color.red.getRGB());
+    view.pan(-10, 5000);
+    t.checkExpect(view.originX, 0);
+    t.checkExpect(view.originY, 200 * 4 - 50);
+    view.zoomIn();
+    t.checkExpect(view.scale, 8);
+    t.checkExpect(view.originX, 50);
+    t.checkExpect(view.originY, 1525);
+    view.zoomOut();
+    view.zoomOut();
+    t.checkExpect(view.scale, 2);
+    t.checkExpect(view.originY, 200 * 2 - 50);
+    t.checkExpect(view.render().getRGB(99, 49) == MazeRaster.BACKGROUND, false);
+    view.resize(1000, 1000);
+    t.checkExpect(view.originY, 0);
+    t.checkExpect(view.render().getRGB(999, 999) & 0xFFFFFF, MazeRaster.BACKGROUND);
+
+    Path file = java.nio.file.Files.createTempFile("maze", ".png");
+    view.writePng(file);
+    t.checkExpect(ImageIO.read(file.toFile()).getWidth(), 1000);
+    java.nio.file.Files.delete(file);
+    t.checkConstructorException(new IllegalArgumentException("scale must be between 1 and 64"),
+        "MazeRaster", open, colours, 0);
+    t.checkConstructorException(new IllegalArgumentException("40000 cells at scale 1 is too big"),
+        "MazeRaster", new MazeGrid(40000, 1), colours, 1);
+  }
+
+  // test the original object maze
+  void testVertexKruskalGenerator(Tester t) {
+    VertexKruskalGenerator gen = new VertexKruskalGenerator();
+    MazeGrid g = gen.generate(100, 60, new Random(3));
+    t.checkExpect(gen.vertices.listLength(), 6000);
+    t.checkExpect(passages(g), g.cells() - 1);
+
+    MazeGrid wide = gen.generate(600, 2, new Random(3));
+    t.checkExpect(gen.vertices.listLength(), 1200);
+    t.checkExpect(passages(wide), 1199);
+    t.checkExpect(gen.walls.listLength(), 2 * ((599 * 2 + 600) - 1199));
+  }
+
+  // test the tiled generator
+  void testParallelKruskalGenerator(Tester t) {
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool four = new ForkJoinPool(4);
+    MazeGrid alone = new ParallelKruskalGenerator(one, 8).generate(50, 37, new Random(3));
+    MazeGrid shared = new ParallelKruskalGenerator(four, 8).generate(50, 37, new Random(3));
+    t.checkExpect(shared.walls, alone.walls);
+    t.checkExpect(passages(shared), shared.cells() - 1);
+    MazeEngine engine = new MazeEngine();
+    t.checkExpect(engine.solve(shared, "bfs").pathLength() > 0, true);
+    t.checkExpect(engine.solve(shared, "bfs").path, engine.solve(shared, "dfs").path);
+
+    MazeGrid small = new ParallelKruskalGenerator(four, 16).generate(5, 3, new Random(1));
+    t.checkExpect(passages(small), 14);
+    t.checkConstructorException(new IllegalArgumentException("tiles must be at least 2 cells wide"),
+        "ParallelKruskalGenerator", four, 1);
+
+    Random seeds = new Random(3);
+    long tileSeed = seeds.nextLong();
+    long seamSeed = seeds.nextLong();
+    ParallelKruskalGenerator eights = new ParallelKruskalGenerator(one, 8);
+    MazeGrid byHand = new MazeGrid(50, 37);
+    for (int tileY = 0; tileY < 5; tileY++) {
+      for (int tileX = 0; tileX < 7; tileX++) {
+        eights.buildTile(byHand, tileSeed, tileX, tileY);
+      }
+    }
+    eights.joinTiles(byHand, new Random(seamSeed), 7, 5);
+    t.checkExpect(byHand.walls, alone.walls);
+    t.checkExpect(new ParallelKruskalGenerator().name(), "parallel-256");
+    MazeEngine tiled = new MazeEngine(new ParallelKruskalGenerator(four, 8));
+    t.checkExpect(tiled.generate(50, 37, 3), tiled.generate(50, 37, 3, "parallel-8"));
+    t.checkExpect(tiled.generate(50, 37, 3).walls, alone.walls);
+    t.checkExpect(tiled.generate(50, 37, 3, "parallel").walls,
+        engine.generate(50, 37, 3, "parallel").walls);
+    t.checkExpect(engine.generate(50, 37, 3, "parallel-8").walls, alone.walls);
+    t.checkExpect(engine.generate(50, 37, 3, "parallel").walls,
+        engine.generate(50, 37, 3, "parallel-256").walls);
+    t.checkException(new IllegalArgumentException("unknown generator parallel-x"), engine,
+        "generatorNamed", "parallel-x");
+    one.shutdown();
+    four.shutdown();
+  }
+
+  // test the row by row generator
+  void testEllerGenerator(Tester t) {
+    EllerGenerator eller = new EllerGenerator();
+    MazeGrid g = eller.generate(40, 25, new Random(9));
+    t.checkExpect(passages(g), g.cells() - 1);
+    t.checkExpect(eller.generate(1, 6, new Random(1)).walls, new KruskalGenerator().generate(1, 6,
+        new Random(1)).walls);
+    t.checkExpect(passages(eller.generate(7, 1, new Random(1))), 6);
+
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    eller.stream(40, 25, new Random(9), new ChannelRowSink(
+        java.nio.channels.Channels.newChannel(bytes), 40));
+    ByteBuffer written = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    t.checkExpect(written.remaining(), 25 * 2 * 8);
+    MazeGrid read = new MazeGrid(40, 25);
+    GridRowSink copy = new GridRowSink(read);
+    for (int y = 0; y < 25; y++) {
+      copy.row(y, new long[] {written.getLong(), written.getLong()});
+    }
+    t.checkExpect(read.walls, g.walls);
+    t.checkException(new IllegalArgumentException("bad maze dimensions 0x3"), eller, "stream", 0,
+        3, new Random(), copy);
+  }
+
+  // test saving, streaming and mapping maze files
+  void testMazeFile(Tester t) throws IOException {
+    MazeFile files = new MazeFile();
+    MazeEngine engine = new MazeEngine();
+    MazeGrid g = engine.generate(70, 33, 4);
+    Path saved = java.nio.file.Files.createTempFile("maze", ".maze");
+    Path streamed = java.nio.file.Files.createTempFile("maze", ".maze");
+    try {
+      files.write(saved, g, 4, "kruskal");
+      MappedMaze mapped = files.map(saved);
+      t.checkExpect(mapped.width, 70);
+      t.checkExpect(mapped.height, 33);
+      t.checkExpect(mapped.seed, 4L);
+      t.checkExpect(mapped.generator, "kruskal");
+      boolean same = true;
+      for (int cell = 0; cell < g.cells(); cell++) {
+        for (int dir = 0; dir < AMaze.DIRECTIONS; dir++) {
+          same = same && mapped.hasWall(cell, dir) == g.hasWall(cell, dir);
+        }
+      }
+      t.checkExpect(same, true);
+      t.checkExpect(engine.solve(mapped, "astar").path, engine.solve(g, "bfs").path);
+
+      files.stream(streamed, 70, 33, 8);
+      MappedMaze eller = files.map(streamed);
+      t.checkExpect(eller.generator, "eller");
+      t.checkExpect(engine.solve(eller, "bidi").path,
+          engine.solve(new EllerGenerator().generate(70, 33, new Random(8)), "dfs").path);
+
+      java.nio.file.Files.write(streamed, new byte[100]);
+      t.checkException(new IOException(streamed + " is not a maze file"), files, "map", streamed);
+
+      byte[] bytes = java.nio.file.Files.readAllBytes(saved);
+      ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(28, -1);
+      java.nio.file.Files.write(streamed, bytes);
+      t.checkException(new IOException(streamed + " is not a maze file"), files, "map", streamed);
+      ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(28, MazeFile.MAX_NAME + 1);
+      java.nio.file.Files.write(streamed, bytes);
+      t.checkException(new IOException(streamed + " is not a maze file"), files, "map", streamed);
+
+      FileChannel huge = FileChannel.open(streamed, StandardOpenOption.WRITE);
+      huge.write(ByteBuffer.wrap(new byte[1]), 3L << 30);
+      huge.close();
+      t.checkException(new IOException(streamed + " is not a maze file"), files, "map", streamed);
+
+      huge = FileChannel.open(streamed, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      files.writeHeader(huge, 33000, 33000, 1, "eller");
+      huge.write(ByteBuffer.wrap(new byte[1]), MazeFile.HEADER + 1032L * 8 * 33000 - 1);
+      huge.close();
+      t.checkExpect(java.nio.file.Files.size(streamed), MazeFile.HEADER + 1032L * 8 * 33000);
+      t.checkException(new IOException(streamed + " is not a maze file"), files, "map", streamed);
+      t.checkException(new IllegalArgumentException("bad maze dimensions 33000x33000"), files,
+          "stream", streamed, 33000, 33000, 1L);
+      t.checkExpect(AMaze.fits(10000, 10000000), false);
+      t.checkExpect(AMaze.fits(32767, 32767), true);
+    }
+    finally {
+      java.nio.file.Files.delete(saved);
+      java.nio.file.Files.delete(streamed);
+    }
+  }
+
+  // test the maze cache
+  void testMazeCache(Tester t) {
+    MazeGrid small = new MazeGrid(8, 8);
+    long size = new MazeCache(0).sizeOf(small);
+    MazeCache cache = new MazeCache(2 * size);
+    MazeKey a = new MazeKey(8, 8, 1, "kruskal");
+    MazeKey b = new MazeKey(8, 8, 2, "kruskal");
+    MazeKey c = new MazeKey(8, 8, 1, "eller");
+    t.checkExpect(cache.get(a), null);
+    cache.put(a, small);
+    cache.put(b, new MazeGrid(8, 8));
+    t.checkExpect(cache.get(new MazeKey(8, 8, 1, "kruskal")) == small, true);
+    cache.put(c, new MazeGrid(8, 8));
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.get(b), null);
+    t.checkExpect(cache.get(a) == small, true);
+    t.checkExpect(cache.hits, 2L);
+    t.checkExpect(cache.misses, 2L);
+    t.checkExpect(cache.evictions, 1L);
+    cache.put(new MazeKey(100, 100, 1, "kruskal"), new MazeGrid(100, 100));
+    t.checkExpect(cache.size(), 2);
+    t.checkExpect(cache.bytes <= cache.capacity, true);
+
+    MazeEngine engine = new MazeEngine();
+    MazeGrid first = engine.generate(30, 20, 5, "eller");
+    t.checkExpect(engine.generate(30, 20, 5, "eller") == first, true);
+    t.checkExpect(engine.generate(30, 20, 5, "kruskal") == first, false);
+    t.checkExpect(engine.generate(30, 20, 5) == engine.generate(30, 20, 5, "kruskal"), true);
+    t.checkExpect(engine.cache.hits, 3L);
+    t.checkExpect(engine.cache.misses, 2L);
+    t.checkExpect(new MazeEngine().generate(30, 20, 5, "eller").walls, first.walls);
+    t.checkExpect(new MazeEngine().generate(30, 20, 5, "vertex").walls,
+        engine.generate(30, 20, 5, "vertex").walls);
+    t.checkException(new IllegalArgumentException("unknown generator xyz"), engine,
+        "generatorNamed", "xyz");
+  }
+
+  // test generating and solving batches on several threads
+  void testBatchRunner(Tester t) throws InterruptedException, ExecutionException {
+    MazeEngine engine = new MazeEngine();
+    ListBatchSink sink = new ListBatchSink();
+    SeedSpecs specs = new SeedSpecs(24, 16, 100, 30, "kruskal");
+    BatchStats stats = new BatchRunner(engine, 3, 5).run(specs, "bfs", sink);
+    t.checkExpect(specs.hasNext(), false);
+    t.checkExpect(stats.count, 30);
+    t.checkExpect(sink.results.size(), 30);
+    BitSet seeds = new BitSet();
+    boolean same = true;
+    for (BatchResult r : sink.results) {
+      seeds.set((int) r.spec.seed - 100);
+      SolveResult alone = new MazeEngine().solve(new MazeEngine().generate(24, 16, r.spec.seed),
+          "bfs");
+      same = same && Arrays.equals(alone.path, r.solve.path)
+          && alone.nodesExpanded == r.solve.nodesExpanded;
+    }
+    t.checkExpect(seeds.cardinality(), 30);
+    t.checkExpect(same, true);
+    t.checkExpect(stats.percentile(0.5) <= stats.percentile(0.99), true);
+    t.checkExpect(stats.percentile(0.99) <= stats.percentile(1), true);
+    t.checkExpect(stats.throughput() > 0, true);
+    t.checkExpect(new BatchRunner(engine, 2, 2).run(new SeedSpecs(8, 8, 0, 0, "eller"), "dfs",
+        sink).count, 0);
+    t.checkConstructorException(
+        new IllegalArgumentException("need a thread and at least as many mazes in flight"),
+        "BatchRunner", engine, 4, 2);
+    t.checkException(new NoSuchElementException("no more seeds"), specs, "next");
+
+    BatchTask queued = new BatchTask(engine, new MazeKey(8, 8, 1, "kruskal"), "bfs");
+    Thread.sleep(20);
+    t.checkExpect(queued.call().latencyNanos >= 20000000, true);
+  }
+
+  // test the headless engine
+  void testMazeEngine(Tester t) {
+    MazeEngine engine = new MazeEngine();
+    MazeGrid g = engine.generate(30, 20, 11);
+    t.checkExpect(engine.generate(30, 20, 11).walls, g.walls);
+
+    SolveResult bfs = engine.solve(g, "bfs");
+    SolveResult dfs = engine.solve(g, "dfs");
+    t.checkExpect(bfs.path, dfs.path);
+    t.checkExpect(bfs.path[0], 0);
+    t.checkExpect(bfs.path[bfs.pathLength() - 1], g.cells() - 1);
+    boolean connected = true;
+    for (int i = 1; i < bfs.pathLength(); i++) {
+      connected = connected && !g.hasWallBetween(bfs.path[i - 1], bfs.path[i]);
+    }
+    t.checkExpect(connected, true);
+    t.checkExpect(bfs.nodesExpanded >= bfs.pathLength() - 1, true);
+    t.checkExpect(engine.run(30, 20, 11, "bfs").path, bfs.path);
+    t.checkExpect(engine.solve(new MazeGrid(1, 1), "dfs").path, new int[] {0});
+    t.checkException(new IllegalArgumentException("unknown algorithm xyz"), engine, "makeSearch",
+        "xyz", g);
+  }
+
+  // test a* and its heap
+  void testAStar(Tester t) {
+    IntMinHeap heap = new IntMinHeap(1);
+    heap.add(5, 50);
+    heap.add(1, 10);
+    heap.add(3, 30);
+    heap.add(1, 11);
+    heap.add(9, 90);
+    t.checkExpect(heap.size(), 5);
+    t.checkExpect(heap.peekKey(), 1);
+    int first = heap.removeMin();
+    t.checkExpect(first == 10 || first == 11, true);
+    heap.removeMin();
+    t.checkExpect(heap.removeMin(), 30);
+    t.checkExpect(heap.removeMin(), 50);
+    t.checkExpect(heap.removeMin(), 90);
+    t.checkException(new UnsupportedOperationException(), heap, "removeMin");
+
+    MazeEngine engine = new MazeEngine();
+    MazeGrid g = engine.generate(60, 40, 5);
+    SolveResult astar = engine.solve(g, "astar");
+    SolveResult bfs = engine.solve(g, "bfs");
+    t.checkExpect(astar.path, bfs.path);
+    t.checkExpect(astar.nodesExpanded <= bfs.nodesExpanded, true);
+
+    MazeGrid open = new MazeGrid(5, 5);
+    for (int cell = 0; cell < open.cells(); cell++) {
+      if (open.neighbour(cell, MazeGrid.EAST) >= 0) {
+        open.removeWall(cell, MazeGrid.EAST);
+      }
+      if (open.neighbour(cell, MazeGrid.SOUTH) >= 0) {
+        open.removeWall(cell, MazeGrid.SOUTH);
+      }
+    }
+    SolveResult straight = engine.solve(open, "astar");
+    t.checkExpect(straight.pathLength(), 9);
+    t.checkExpect(straight.nodesExpanded <= open.cells(), true);
+  }
+
+  // test the search from both ends
+  void testBidirectionalBreadthFirst(Tester t) {
+    MazeEngine engine = new MazeEngine();
+    int bfsExpanded = 0;
+    int bidiExpanded = 0;
+    for (long seed = 0; seed < 5; seed++) {
+      MazeGrid g = engine.generate(80, 50, seed);
+      SolveResult bfs = engine.solve(g, "bfs");
+      SolveResult bidi = engine.solve(g, "bidi");
+      t.checkExpect(bidi.path, bfs.path);
+      bfsExpanded += bfs.nodesExpanded;
+      bidiExpanded += bidi.nodesExpanded;
+    }
+    t.checkExpect(bidiExpanded < bfsExpanded, true);
+
+    MazeGrid line = new MazeGrid(4, 1);
+    line.removeWallBetween(0, 1);
+    line.removeWallBetween(1, 2);
+    line.removeWallBetween(2, 3);
+    BidirectionalBreadthFirst both = new BidirectionalBreadthFirst(line);
+    both.next();
+    both.next();
+    t.checkExpect(both.travelled(1) && both.travelled(2), true);
+    t.checkExpect(both.isInPath(3), false);
+    both.next();
+    t.checkExpect(both.hasNext(), false);
+    t.checkExpect(both.expanded, 3);
+    t.checkExpect(both.path(), new int[] {0, 1, 2, 3});
+    t.checkExpect(both.isInPath(1) && both.isInPath(2) && both.isInPath(3), true);
+
+    MazeGrid cut = new MazeGrid(2, 1);
+    t.checkExpect(engine.solve(cut, "bidi").path, new int[0]);
+    t.checkExpect(engine.solve(new MazeGrid(1, 1), "bidi").path, new int[] {0});
+  }
+
+  // test the benchmark harness on a tiny maze
+  void testMazeBenchmarks(Tester t) {
+    MazeBenchmarks runner = new MazeBenchmarks();
+    for (Benchmark b : runner.benchmarks()) {
+      BenchmarkResult r = runner.measure(b, 6, 4, 1, 2);
+      t.checkExpect(r.iterations, 2);
+      t.checkExpect(r.minMillis <= r.meanMillis, true);
+      t.checkExpect(b.result == null, false);
+    }
+
+    BenchmarkResult bfs = runner.measure(new SolveBenchmark("bfs"), 300, 200, 3, 4);
+    t.checkExpect(bfs.bytesPerOp < 1024, true);
+
+    ForkJoinPool two = new ForkJoinPool(2);
+    long all = runner.allocatedBytes();
+    long mine = runner.threadAllocatedBytes();
+    new ParallelKruskalGenerator(two, 64).generate(256, 256, new Random(1));
+    long elsewhere = (runner.allocatedBytes() - all) - (runner.threadAllocatedBytes() - mine);
+    t.checkExpect(all < 0 || elsewhere > 16 * 64 * 64 * 4, true);
+    two.shutdown();
+  }
+
+  // test the ring buffer deques, and the queue and stack on top of them
+  void testDeque(Tester t) {
+    Deque<String> d = new Deque<String>(2);
+    t.checkExpect(d.addAtBottom("b"), "b");
+    t.checkExpect(d.addAtHead("a"), "a");
+    t.checkExpect(d.addAtBottom("c"), "a");
+    t.checkExpect(d.size(), 3);
+    t.checkExpect(d.removeFromBottom(), "c");
+    t.checkExpect(d.removeFromHead(), "a");
+    t.checkExpect(d.removeFromHead(), "b");
+    t.checkExpect(d.isEmpty(), true);
+    t.checkException(new UnsupportedOperationException(), d, "removeFromHead");
+
+    Deque<String> letters = new Deque<String>(4);
+    letters.addAtBottom("b");
+    letters.addAtBottom("c");
+    letters.addAtHead("a");
+    letters.addAtBottom("d");
+    letters.addAtBottom("e");
+    t.checkExpect(letters.find(new EqualTo<String>("d")), 3);
+    t.checkExpect(letters.find(new EqualTo<String>("z")), -1);
+    letters.removeNode(letters.find(new EqualTo<String>("b")));
+    letters.removeNode(3);
+    t.checkExpect(letters.size(), 3);
+    t.checkExpect(letters.get(0), "a");
+    t.checkExpect(letters.get(1), "c");
+    t.checkExpect(letters.get(2), "d");
+    t.checkException(new IndexOutOfBoundsException("no element 3 in a deque of 3"), letters,
+        "removeNode", 3);
+
+    IntDeque ints = new IntDeque(2);
+    for (int i = 0; i < 40; i++) {
+      ints.addAtBottom(i);
+      ints.addAtHead(-i);
+      ints.removeFromHead();
+    }
+    t.checkExpect(ints.size(), 40);
+    t.checkExpect(ints.get(0), 0);
+    t.checkExpect(ints.removeFromBottom(), 39);
+    t.checkExpect(ints.removeFromHead(), 0);
+    ints.clear();
+    t.checkExpect(ints.isEmpty(), true);
+    t.checkException(new UnsupportedOperationException(), ints, "removeFromBottom");
+
+    Queue<String> q = new Queue<String>(new Cons<String>("x", new Cons<String>("y",
+        new Empty<String>())));
+    q.enqueue("z");
+    t.checkExpect(q.dequeue(), "x");
+    t.checkExpect(q.dequeue(), "y");
+    Stack<String> st = new Stack<String>();
+    st.push("x");
+    st.push("y");
+    t.checkExpect(st.pop(), "y");
+    t.checkExpect(st.isEmpty(), false);
+  }
+
+  // test the union find
+  void testUnionFind(Tester t) {
+    UnionFind sets = new UnionFind(6);
+    t.checkExpect(sets.find(4), 4);
+    t.checkExpect(sets.union(3, 4), true);
+    t.checkExpect(sets.find(4), sets.find(3));
+    t.checkExpect(sets.union(4, 3), false);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(1, 4), true);
+    t.checkExpect(sets.find(0), sets.find(3));
+    t.checkExpect(sets.find(5) == sets.find(0), false);
+  }
 
-    HashMap<Integer, Integer> h = new HashMap<Integer, Integer>();
-    h.put(3, 3);
-    h.put(4, 3);
+  // test the compact grid
+  void testMazeGrid(Tester t) {
+    MazeGrid g = new MazeGrid(3, 2);
+    t.checkExpect(g.cells(), 6);
+    t.checkExpect(g.index(2, 1), 5);
+    t.checkExpect(g.xOf(5), 2);
+    t.checkExpect(g.yOf(5), 1);
+    t.checkExpect(g.neighbour(0, MazeGrid.NORTH), -1);
+    t.checkExpect(g.neighbour(0, MazeGrid.EAST), 1);
+    t.checkExpect(g.neighbour(2, MazeGrid.EAST), -1);
+    t.checkExpect(g.neighbour(4, MazeGrid.NORTH), 1);
+    t.checkExpect(g.canMove(0, MazeGrid.EAST), false);
+    g.removeWallBetween(1, 0);
+    t.checkExpect(g.canMove(0, MazeGrid.EAST), true);
+    t.checkExpect(g.canMove(1, MazeGrid.WEST), true);
+    g.removeWall(4, MazeGrid.NORTH);
+    t.checkExpect(g.hasWall(1, MazeGrid.SOUTH), false);
+    t.checkExpect(g.hasWall(0, MazeGrid.SOUTH), true);
+    t.checkExpect(g.canMove(2, MazeGrid.EAST), false);
+    t.checkExpect(g.hasWallBetween(4, 1), false);
+    t.checkExpect(g.hasWallBetween(2, 5), true);
+    t.checkException(new IllegalArgumentException("cells 0 and 4 are not adjacent"), g,
+        "removeWallBetween", 0, 4);
+    t.checkException(new IllegalArgumentException("cells 2 and 3 are not adjacent"), g,
+        "hasWallBetween", 2, 3);
+    t.checkConstructorException(new IllegalArgumentException("bad maze dimensions 0x5"),
+        "MazeGrid", 0, 5);
+  }
+
+  // counts the open walls of a grid, each one once
+  int passages(MazeGrid g) {
+    int open = 0;
+    for (int cell = 0; cell < g.cells(); cell++) {
+      if (g.canMove(cell, MazeGrid.EAST)) {
+        open++;
+      }
+      if (g.canMove(cell, MazeGrid.SOUTH)) {
+        open++;
+      }
+    }
+    return open;
+  }
+
+  // whether repainting every cell of the world leaves its canvas exactly as it was
+  boolean sameAsFullRepaint(MazeGameWorld maze) {
+    int wide = maze.grid.width * maze.scale;
+    Color[] painted = new Color[wide * maze.grid.height * maze.scale];
+    for (int i = 0; i < painted.length; i++) {
+      painted[i] = maze.canvas.getColorAt(i % wide, i / wide);
+    }
+    maze.allDirty = true;
+    maze.makeScene();
+    boolean same = true;
+    for (int i = 0; i < painted.length; i++) {
+      same = same && painted[i].equals(maze.canvas.getColorAt(i % wide, i / wide));
+    }
+    return same;
+  }
+
+  // whether solving again from a reset allocates under a kilobyte on this thread, always true
+  // where the JVM cannot count allocations
+  boolean solvesWithoutGarbage(Search search) {
+    MazeBenchmarks memory = new MazeBenchmarks();
+    search.reset();
+    long before = memory.threadAllocatedBytes();
+    while (search.hasNext()) {
+      search.next();
+    }
+    return before < 0 || memory.threadAllocatedBytes() - before < 1024;
+  }
+
+  // test generating and solving on the grid
+  void testGridMaze(Tester t) {
+    MazeGrid g = new KruskalGenerator().generate(40, 25, new Random(7));
+    t.checkExpect(passages(g), g.cells() - 1);
 
-    t.checkExpect(maze.find(h, 3), 3);
-    t.checkExpect(maze.find(h, 4), 3);
+    BreadthFirst bfs = new BreadthFirst(g);
+    while (bfs.hasNext()) {
+      bfs.next();
+    }
+    DepthFirst dfs = new DepthFirst(g);
+    while (dfs.hasNext()) {
+      dfs.next();
+    }
+    t.checkExpect(bfs.isInPath(g.cells() - 1), true);
+    t.checkExpect(bfs.onPath, dfs.onPath);
+    t.checkExpect(bfs.travelled(0), true);
+
+    MazeGrid line = new MazeGrid(3, 1);
+    line.removeWallBetween(0, 1);
+    line.removeWallBetween(1, 2);
+    BreadthFirst across = new BreadthFirst(line);
+    across.next();
+    across.next();
+    t.checkExpect(across.isInPath(1), true);
+    t.checkExpect(across.isInPath(2), true);
+    t.checkExpect(across.hasNext(), false);
   }
 
   void testGame(Tester t) {
     MazeGameWorld m = new MazeGameWorld();
-    m.bigBang(MazeGameWorld.WIDTH * MazeGameWorld.SCALE, MazeGameWorld.HEIGHT * MazeGameWorld.SCALE,
-        0.005);
+    m.bigBang(m.width * m.scale, m.height * m.scale, 0.005);
   }
 }